@@ -0,0 +1,81 @@
+package com.loginapp;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs login and signup off the JavaFX Application Thread, once
+ * {@link Bootstrap} has the database ready. Both spend most of
+ * their time in BCrypt, so they get their own worker pool sized to the CPU
+ * cores with a short bounded queue: concurrent attempts never oversubscribe the
+ * CPU, and attempts beyond the queue are rejected instead of piling up.
+ */
+public class AuthService {
+    private static final int WORKERS = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private static final int QUEUE_CAPACITY = WORKERS;
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private static final ThreadPoolExecutor AUTH_EXECUTOR = new ThreadPoolExecutor(
+        WORKERS, WORKERS, 30, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+        runnable -> {
+            Thread thread = new Thread(runnable, "diary-auth-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        },
+        new ThreadPoolExecutor.AbortPolicy());
+
+    static {
+        AUTH_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Verifies the credentials on the auth pool.
+     * @return A future completed on the FX thread with true if the login
+     *         succeeded; it fails with {@code RejectedExecutionException} when
+     *         the pool is saturated
+     */
+    public static CompletableFuture<Boolean> login(String username, String password) {
+        return DiaryRepository.submitOn(AUTH_EXECUTOR, () -> {
+            Bootstrap.awaitReady();
+            return UserDAO.login(username, password);
+        });
+    }
+
+    /**
+     * Hashes the password and creates the user on the auth pool.
+     * @return A future completed on the FX thread with true if the user was
+     *         created; it fails with {@code RejectedExecutionException} when
+     *         the pool is saturated
+     */
+    public static CompletableFuture<Boolean> signup(String username, String password) {
+        return DiaryRepository.submitOn(AUTH_EXECUTOR, () -> {
+            Bootstrap.awaitReady();
+            return UserDAO.signup(username, password);
+        });
+    }
+
+    /**
+     * Runs follow-up work of a login, such as upgrading its password hash, on
+     * the auth pool after the login has returned. The work is dropped when
+     * the pool is saturated; a hash upgrade is simply tried at the next login.
+     */
+    static void runInBackground(Runnable work) {
+        try {
+            AUTH_EXECUTOR.execute(work);
+        } catch (RejectedExecutionException e) {
+            System.err.println("Auth pool busy; skipped background work after login");
+        }
+    }
+
+    /**
+     * Stops accepting new attempts. Attempts already queued still run.
+     */
+    public static void shutdown() {
+        AUTH_EXECUTOR.shutdown();
+    }
+}
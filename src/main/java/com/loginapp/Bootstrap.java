@@ -0,0 +1,143 @@
+package com.loginapp;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The application's single startup sequence. {@link #initialize()} starts the
+ * database work (driver load, schema upgrade, stored settings) once, on its own thread while JavaFX starts up, since the login
+ * window itself needs no database; anything that does calls
+ * {@link #awaitReady()} first. {@link #firstPaint()} is called when the login
+ * window has been drawn and only then starts background maintenance, so the
+ * timestamp conversion, the BCrypt calibration, the password migration and
+ * the content compression never compete with the first queries or the first
+ * frame. Every phase is timed and the report is printed and written to
+ * {@value #REPORT_FILE}.
+ */
+public class Bootstrap {
+    private static final String REPORT_FILE = "startup-timing.log";
+
+    private static final long startNanos = System.nanoTime();
+    private static final List<String> phases = new ArrayList<>();
+    private static long lastMarkNanos = startNanos;
+    private static final CompletableFuture<Void> ready = new CompletableFuture<>();
+    private static boolean initialized = false;
+    private static boolean painted = false;
+
+    /**
+     * Starts the database startup phases in the background. Later calls do
+     * nothing.
+     */
+    public static synchronized void initialize() {
+        if (initialized) {
+            return;
+        }
+        initialized = true;
+        Thread bootstrap = new Thread(() -> {
+            try {
+                phase("schema", Database::init);
+                phase("settings", () -> {
+                    PasswordHasher.loadStoredWorkload();
+                    TimestampMigration.loadStatus();
+                });
+            } finally {
+                ready.complete(null);
+            }
+        }, "bootstrap");
+        bootstrap.setDaemon(true);
+        bootstrap.start();
+    }
+
+    /**
+     * Blocks until the schema is up to date and settings are loaded. Never
+     * call it on the FX thread.
+     */
+    public static void awaitReady() {
+        initialize();
+        ready.join();
+    }
+
+    /**
+     * Records a milestone on the way to the login window, timed from the
+     * previous milestone.
+     * @param name The milestone name for the report
+     */
+    public static synchronized void mark(String name) {
+        long previous = lastMarkNanos;
+        lastMarkNanos = System.nanoTime();
+        record(name, previous);
+    }
+
+    /**
+     * Marks the login window as painted, writes the startup report and
+     * starts background maintenance. Later calls do nothing.
+     */
+    public static void firstPaint() {
+        synchronized (Bootstrap.class) {
+            if (painted) {
+                return;
+            }
+            painted = true;
+            mark("first paint");
+            writeReport();
+        }
+
+        Thread maintenance = new Thread(() -> {
+            awaitReady();
+            // Until this finishes, date queries convert leftover TEXT timestamps as they read
+            phase("timestamps", TimestampMigration::migrateTimestamps);
+            // Calibrate the BCrypt cost for this machine the first time, then run
+            // the password migration with it (safe to run multiple times)
+            phase("bcrypt calibration", PasswordHasher::calibrateIfNeeded);
+            phase("password migration", PasswordMigration::migratePasswords);
+            phase("content compression", ContentCompression::compressContent);
+            writeReport();
+        }, "startup-maintenance");
+        maintenance.setDaemon(true);
+        maintenance.start();
+    }
+
+    private static void phase(String name, Runnable work) {
+        long started = System.nanoTime();
+        try {
+            work.run();
+        } finally {
+            record(name, started);
+        }
+    }
+
+    private static synchronized void record(String name, long started) {
+        long now = System.nanoTime();
+        phases.add(String.format("%-22s %9.1f ms %9.1f ms", name,
+                                 (now - started) / 1_000_000.0, (now - startNanos) / 1_000_000.0));
+    }
+
+    private static synchronized void writeReport() {
+        List<String> lines = new ArrayList<>();
+        lines.add("Startup at " + Instant.now());
+        // Time spent before main() ran: JVM start and class loading
+        ProcessHandle.current().info().startInstant().ifPresent(jvmStart ->
+            lines.add(String.format("%-22s %9d ms", "jvm to main",
+                                    Instant.now().toEpochMilli() - jvmStart.toEpochMilli()
+                                    - (System.nanoTime() - startNanos) / 1_000_000)));
+        lines.add(String.format("%-22s %12s %12s", "phase", "took", "since main"));
+        lines.addAll(phases);
+
+        for (String line : lines) {
+            System.out.println(line);
+        }
+        Path report = Paths.get(REPORT_FILE);
+        try {
+            Files.write(report, lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.err.println("Could not write " + report + ": " + e.getMessage());
+        }
+    }
+}
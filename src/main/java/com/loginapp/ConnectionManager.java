@@ -0,0 +1,226 @@
+package com.loginapp;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps a small pool of long-lived SQLite connections for {@link Database}.
+ * Connections are configured once when they are opened (WAL journal, relaxed
+ * fsync, busy timeout, mmap and page cache) and handed out as proxies whose
+ * {@code close()} returns the physical connection to the pool instead of
+ * closing the database file. Each pooled connection keeps its own
+ * {@link StatementCache}, so {@code prepareStatement} reuses compiled statements.
+ */
+public class ConnectionManager {
+    // The database file, users.db in the working directory unless diary.db says otherwise
+    private static final String URL = "jdbc:sqlite:" + System.getProperty("diary.db", "users.db");
+    private static final int POOL_SIZE = 4;
+    private static final long ACQUIRE_TIMEOUT_MS = 10_000;
+
+    private static final String[] PRAGMAS = {
+        "PRAGMA journal_mode = WAL",
+        "PRAGMA synchronous = NORMAL",
+        "PRAGMA busy_timeout = 5000",
+        "PRAGMA mmap_size = 268435456",
+        "PRAGMA cache_size = -8192",
+        "PRAGMA temp_store = MEMORY"
+    };
+
+    private static final BlockingQueue<PooledConnection> idle = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static final AtomicInteger opened = new AtomicInteger();
+    private static final AtomicInteger schemaEpoch = new AtomicInteger();
+    private static volatile boolean shutdown = false;
+
+    /**
+     * Borrows a connection from the pool, opening a new one if the pool has
+     * not reached its size yet. Closing the returned connection gives it back.
+     * @return A pooled connection
+     * @throws SQLException if no connection could be obtained
+     */
+    public static Connection acquire() throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool has been shut down");
+        }
+        PooledConnection pooled = idle.poll();
+        if (pooled == null) {
+            pooled = openIfBelowLimit();
+        }
+        if (pooled == null) {
+            try {
+                pooled = idle.poll(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection", e);
+            }
+            if (pooled == null) {
+                throw new SQLException("Timed out waiting for a database connection");
+            }
+        }
+        return wrap(pooled);
+    }
+
+    /**
+     * Signals a schema change. Every connection drops its cached statements
+     * the next time it prepares one, so no statement compiled against the old
+     * schema is reused.
+     */
+    public static void invalidateStatements() {
+        schemaEpoch.incrementAndGet();
+    }
+
+    /**
+     * Closes every idle connection. Connections still borrowed are closed
+     * when they are returned.
+     */
+    public static void shutdown() {
+        shutdown = true;
+        PooledConnection pooled;
+        while ((pooled = idle.poll()) != null) {
+            closeQuietly(pooled);
+        }
+    }
+
+    private static PooledConnection openIfBelowLimit() throws SQLException {
+        while (true) {
+            int current = opened.get();
+            if (current >= POOL_SIZE) {
+                return null;
+            }
+            if (opened.compareAndSet(current, current + 1)) {
+                try {
+                    return open();
+                } catch (SQLException | RuntimeException e) {
+                    opened.decrementAndGet();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static PooledConnection open() throws SQLException {
+        Connection conn = DriverManager.getConnection(URL);
+        try (Statement stmt = conn.createStatement()) {
+            for (String pragma : PRAGMAS) {
+                stmt.execute(pragma);
+            }
+            // The full-text index reads compressed content through it
+            ContentCodec.register(conn);
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        return new PooledConnection(conn, new StatementCache(conn, schemaEpoch.get()));
+    }
+
+    private static void release(PooledConnection pooled) {
+        Connection physical = pooled.physical;
+        try {
+            if (physical.isClosed()) {
+                opened.decrementAndGet();
+                return;
+            }
+            // Never hand out a connection with a half-finished transaction
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.err.println("Discarding broken database connection: " + e.getMessage());
+            closeQuietly(pooled);
+            opened.decrementAndGet();
+            return;
+        }
+        if (shutdown || !idle.offer(pooled)) {
+            closeQuietly(pooled);
+            opened.decrementAndGet();
+        }
+    }
+
+    private static void closeQuietly(PooledConnection pooled) {
+        pooled.statements.closeAll();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static Connection wrap(PooledConnection pooled) {
+        return (Connection) Proxy.newProxyInstance(
+            ConnectionManager.class.getClassLoader(),
+            new Class<?>[] { Connection.class },
+            new PooledConnectionHandler(pooled));
+    }
+
+    /**
+     * A physical connection together with its statement cache.
+     */
+    private static class PooledConnection {
+        private final Connection physical;
+        private final StatementCache statements;
+
+        PooledConnection(Connection physical, StatementCache statements) {
+            this.physical = physical;
+            this.statements = statements;
+        }
+    }
+
+    /**
+     * Forwards every call to the physical connection except {@code close()},
+     * which returns it to the pool exactly once, and plain
+     * {@code prepareStatement(sql)}, which goes through the statement cache.
+     */
+    private static class PooledConnectionHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final Connection physical;
+        private boolean closed = false;
+
+        PooledConnectionHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+            this.physical = pooled.physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection has been returned to the pool");
+            }
+            if (method.getName().equals("prepareStatement") && args.length == 1) {
+                return pooled.statements.prepare((String) args[0], schemaEpoch.get());
+            }
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
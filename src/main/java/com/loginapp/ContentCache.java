@@ -0,0 +1,64 @@
+package com.loginapp;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least-recently-used cache of entry bodies, bounded by their total length.
+ * List queries only fetch summaries; the body of an entry is loaded on demand
+ * by {@link Database#getEntryContent} and kept here so reopening recent
+ * entries does not hit the database again.
+ */
+public class ContentCache {
+    // Roughly 8 MB of UTF-16 text
+    private static final long MAX_CHARS = 4L * 1024 * 1024;
+
+    private static final LinkedHashMap<Integer, String> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private static long totalChars = 0;
+
+    /**
+     * @return The cached body of the entry, or null if it is not cached
+     */
+    public static synchronized String get(int entryId) {
+        return entries.get(entryId);
+    }
+
+    /**
+     * Caches the body of an entry, evicting the least recently used bodies
+     * until the cache is back under its size bound. Bodies larger than the
+     * whole bound are not cached.
+     */
+    public static synchronized void put(int entryId, String content) {
+        invalidate(entryId);
+        if (content == null || content.length() > MAX_CHARS) {
+            return;
+        }
+        entries.put(entryId, content);
+        totalChars += content.length();
+
+        Iterator<Map.Entry<Integer, String>> eldest = entries.entrySet().iterator();
+        while (totalChars > MAX_CHARS && eldest.hasNext()) {
+            totalChars -= eldest.next().getValue().length();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Drops the cached body of an entry, if any.
+     */
+    public static synchronized void invalidate(int entryId) {
+        String removed = entries.remove(entryId);
+        if (removed != null) {
+            totalChars -= removed.length();
+        }
+    }
+
+    /**
+     * Drops every cached body, e.g. when the user logs out.
+     */
+    public static synchronized void clear() {
+        entries.clear();
+        totalChars = 0;
+    }
+}
@@ -0,0 +1,139 @@
+package com.loginapp;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.sqlite.Function;
+
+/**
+ * How entry content is stored in diary_entries.content. Short content is
+ * stored as TEXT. Content of at least {@value #COMPRESS_THRESHOLD} bytes, which
+ * would spill into overflow pages, is stored as a BLOB holding a magic header
+ * followed by the deflated UTF-8 text, unless that saves less than a tenth.
+ * Readers call {@link #decode(Object)} on whatever the column holds. Schema
+ * upgrades read it in SQL through the {@code diary_text(content)} function
+ * that {@link ConnectionManager} registers on every connection.
+ */
+public class ContentCodec {
+    static final int COMPRESS_THRESHOLD = 4096;
+    // "DZ" and a format version; TEXT content is never stored as a BLOB without it
+    private static final byte[] MAGIC = { 'D', 'Z', 1 };
+
+    /**
+     * @return The value to store for the content: the text itself, or the
+     *         compressed bytes if it is long and compresses well
+     */
+    public static Object encode(String content) {
+        if (content == null) {
+            return null;
+        }
+        byte[] utf8 = content.getBytes(StandardCharsets.UTF_8);
+        if (utf8.length < COMPRESS_THRESHOLD) {
+            return content;
+        }
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(utf8);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(utf8.length / 2);
+            out.write(MAGIC, 0, MAGIC.length);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            byte[] compressed = out.toByteArray();
+            return compressed.length <= utf8.length - utf8.length / 10 ? compressed : content;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * @return The content stored in the given column value, or null for null
+     */
+    public static String decode(Object stored) {
+        if (stored == null) {
+            return null;
+        }
+        if (!(stored instanceof byte[])) {
+            return stored.toString();
+        }
+        byte[] bytes = (byte[]) stored;
+        if (!isCompressed(bytes)) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, MAGIC.length, bytes.length - MAGIC.length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 3);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Compressed content is truncated");
+                }
+                out.write(buffer, 0, count);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Compressed content is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Binds the content to a statement parameter in its stored form.
+     * @return True if it is bound compressed, which the full-text index
+     *         triggers cannot read; see {@link Database#indexCompressed}
+     */
+    public static boolean bind(PreparedStatement pstmt, int index, String content) throws SQLException {
+        Object stored = encode(content);
+        if (stored instanceof byte[]) {
+            pstmt.setBytes(index, (byte[]) stored);
+            return true;
+        }
+        pstmt.setString(index, (String) stored);
+        return false;
+    }
+
+    static boolean isCompressed(byte[] bytes) {
+        return bytes.length >= MAGIC.length
+               && Arrays.equals(bytes, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    /**
+     * Registers {@code diary_text(content)} on a physical connection, for
+     * schema upgrades that index existing content.
+     */
+    static void register(Connection conn) throws SQLException {
+        Function.create(conn, "diary_text", new Function() {
+            @Override
+            protected void xFunc() throws SQLException {
+                // 4 and 5 are SQLITE_BLOB and SQLITE_NULL
+                switch (value_type(0)) {
+                    case 4:
+                        try {
+                            result(decode(value_blob(0)));
+                        } catch (IllegalStateException e) {
+                            error(e.getMessage());
+                        }
+                        break;
+                    case 5:
+                        result();
+                        break;
+                    default:
+                        result(value_text(0));
+                }
+            }
+        }, 1, Function.FLAG_DETERMINISTIC);
+    }
+}
@@ -0,0 +1,120 @@
+package com.loginapp;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compresses the content of existing entries that were stored as TEXT before
+ * {@link ContentCodec} existed. New and edited entries are encoded when they
+ * are written, so this only has to go over the table once. Entries are
+ * scanned in id order, one chunk per transaction together with the last
+ * scanned id, so the migration resumes where it stopped; a flag in
+ * app_settings skips it once it has finished. An entry edited while its chunk
+ * is being compressed keeps the edit: rows are only replaced if their content
+ * is still what was read.
+ */
+public class ContentCompression {
+    private static final int CHUNK_SIZE = 200;
+    private static final String LAST_ID_KEY = "content_compression.last_id";
+    private static final String COMPLETE_KEY = "content_compression.complete";
+
+    /**
+     * Compresses every remaining long TEXT content. Safe to run repeatedly.
+     */
+    public static void compressContent() {
+        if ("true".equals(Database.getSetting(COMPLETE_KEY))) {
+            return;
+        }
+
+        // length() counts characters, a lower bound of the UTF-8 size the codec checks
+        String selectSql = "SELECT id, content FROM diary_entries " +
+                           "WHERE id > ? AND typeof(content) = 'text' AND length(content) >= ? " +
+                           "ORDER BY id LIMIT ?";
+        String updateSql = "UPDATE diary_entries SET content = ? WHERE id = ? AND content = ?";
+        long started = System.nanoTime();
+        int scannedCount = 0;
+        int compressedCount = 0;
+        long savedBytes = 0;
+
+        try (Connection conn = Database.getConnection()) {
+            String lastIdSetting = Database.getSetting(conn, LAST_ID_KEY);
+            int lastId = lastIdSetting != null ? Integer.parseInt(lastIdSetting) : 0;
+
+            while (true) {
+                List<Object[]> compressed = new ArrayList<>();
+                int chunkRows = 0;
+                int chunkLastId = lastId;
+                try (PreparedStatement select = conn.prepareStatement(selectSql)) {
+                    select.setInt(1, lastId);
+                    select.setInt(2, ContentCodec.COMPRESS_THRESHOLD / 4);
+                    select.setInt(3, CHUNK_SIZE);
+                    try (ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) {
+                            chunkRows++;
+                            chunkLastId = rs.getInt("id");
+                            String content = rs.getString("content");
+                            Object stored = ContentCodec.encode(content);
+                            if (stored instanceof byte[]) {
+                                compressed.add(new Object[] { stored, chunkLastId, content });
+                            }
+                        }
+                    }
+                }
+                if (chunkRows == 0) {
+                    break;
+                }
+                scannedCount += chunkRows;
+
+                // Write the chunk and the resume point in one transaction
+                conn.setAutoCommit(false);
+                try (PreparedStatement update = conn.prepareStatement(updateSql)) {
+                    for (Object[] row : compressed) {
+                        update.setBytes(1, (byte[]) row[0]);
+                        update.setInt(2, (Integer) row[1]);
+                        update.setString(3, (String) row[2]);
+                        update.addBatch();
+                    }
+                    int[] counts = update.executeBatch();
+                    Database.putSetting(conn, LAST_ID_KEY, Integer.toString(chunkLastId));
+                    conn.commit();
+                    for (int i = 0; i < counts.length; i++) {
+                        if (counts[i] > 0) {
+                            compressedCount++;
+                            Object[] row = compressed.get(i);
+                            savedBytes += ((String) row[2]).getBytes(StandardCharsets.UTF_8).length
+                                          - ((byte[]) row[0]).length;
+                        }
+                    }
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+                lastId = chunkLastId;
+            }
+
+            Database.putSetting(conn, COMPLETE_KEY, "true");
+
+            double seconds = (System.nanoTime() - started) / 1_000_000_000.0;
+            System.out.println(String.format(
+                "Content compression complete. Scanned %d long entries, compressed %d, saving %d KB in %.1f s.",
+                scannedCount, compressedCount, savedBytes / 1024, seconds));
+
+        } catch (SQLException e) {
+            System.err.println("Error during content compression: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Main method to run the content compression on its own.
+     */
+    public static void main(String[] args) {
+        System.out.println("Starting content compression...");
+        Database.init();
+        compressContent();
+    }
+}
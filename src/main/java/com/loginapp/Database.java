@@ -1,123 +1,528 @@
 package com.loginapp;
 
 import java.sql.*;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class Database {
-    private static final String URL = "jdbc:sqlite:users.db";
-    private static String currentUser = null;
+    // Format of the TEXT timestamps written before they became epoch millis
+    private static final DateTimeFormatter LEGACY_DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    // Stays well below SQLite's limit on bound parameters per statement
+    private static final int DELETE_CHUNK_SIZE = 500;
+    // Every chunk uses the same statement, so the StatementCache holds one copy
+    private static final String DELETE_CHUNK_SQL = "DELETE FROM diary_entries WHERE user_id = ? AND id IN (" +
+                                                   String.join(", ", Collections.nCopies(DELETE_CHUNK_SIZE, "?")) + ")";
+    // Summaries read per query when filling the EntryCache
+    private static final int CACHE_FILL_SIZE = 200;
 
+    /**
+     * One schema upgrade; step N takes the database to user_version N + 1.
+     */
+    @FunctionalInterface
+    private interface SchemaStep {
+        void apply(Statement stmt) throws SQLException;
+    }
+
+    // Append new steps at the end; never reorder or edit released ones
+    private static final SchemaStep[] SCHEMA_STEPS = {
+        Database::createTables,
+        Database::createEntryIndex,
+        Database::createFullTextIndex,
+        Database::useEpochTimestamps,
+        Database::addImportKeys,
+        Database::readContentThroughCodec,
+        Database::indexWithoutFunctions
+    };
+    private static boolean schemaReady = false;
+
+    /**
+     * Borrows a pooled connection from {@link ConnectionManager}. Closing it
+     * returns it to the pool.
+     */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL);
+        return ConnectionManager.acquire();
     }
 
-    public static void init() {
+    /**
+     * Brings the schema up to date. The schema version is kept in
+     * {@code PRAGMA user_version}; only the steps after it run, each in its
+     * own transaction together with the version bump, so an up-to-date
+     * database costs a single PRAGMA read and later calls cost nothing.
+     * <p>
+     * Some upgrade steps read content through {@code diary_text()}, which only
+     * exists on connections opened by {@link ConnectionManager}, so upgrades
+     * must run in the app. The resulting schema does not use it: other SQLite
+     * 3.43+ clients, such as the sqlite3 shell or backup and repair tools, can
+     * write to diary_entries. Rows they write are indexed for full-text search
+     * if their content is plain TEXT; compressed content is indexed only when
+     * the app writes it.
+     */
+    public static synchronized void init() {
+        if (schemaReady) {
+            return;
+        }
+        QueryMetrics.Timer timer = QueryMetrics.start("init");
         try (Connection conn = getConnection();
              Statement stmt = conn.createStatement()) {
-            // Users table
-            String usersTable = "CREATE TABLE IF NOT EXISTS users (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                    "username TEXT UNIQUE NOT NULL," +
-                    "password TEXT NOT NULL)";
-            
-            // Diary entries table
-            String entriesTable = "CREATE TABLE IF NOT EXISTS diary_entries (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                    "user_id INTEGER NOT NULL," +
-                    "title TEXT NOT NULL," +
-                    "content TEXT NOT NULL," +
-                    "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
-                    "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
-                    "FOREIGN KEY (user_id) REFERENCES users(id))"
-                    ;
+            int version;
+            try (ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+                version = rs.next() ? rs.getInt(1) : 0;
+            }
             
-            stmt.execute(usersTable);
-            stmt.execute(entriesTable);
+            for (int step = version; step < SCHEMA_STEPS.length; step++) {
+                conn.setAutoCommit(false);
+                try {
+                    SCHEMA_STEPS[step].apply(stmt);
+                    stmt.execute("PRAGMA user_version = " + (step + 1));
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            }
             
-            // Create trigger to update updated_at timestamp
-            String trigger = "CREATE TRIGGER IF NOT EXISTS update_diary_timestamp " +
-                           "AFTER UPDATE ON diary_entries " +
-                           "BEGIN " +
-                           "  UPDATE diary_entries SET updated_at = CURRENT_TIMESTAMP WHERE id = NEW.id; " +
-                           "END;";
-            stmt.execute(trigger);
+            if (version < SCHEMA_STEPS.length) {
+                // Statements cached against the old schema must be recompiled
+                ConnectionManager.invalidateStatements();
+            }
+            schemaReady = true;
             
         } catch (SQLException e) {
+            QueryMetrics.recordError("init");
             e.printStackTrace();
+        } finally {
+            timer.close();
         }
     }
 
-    public static void setCurrentUser(String username) {
-        currentUser = username;
+    // Version 1: users, entries and settings tables
+    private static void createTables(Statement stmt) throws SQLException {
+        // Users table
+        String usersTable = "CREATE TABLE IF NOT EXISTS users (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                "username TEXT UNIQUE NOT NULL," +
+                "password TEXT NOT NULL)";
+        
+        // Diary entries table
+        String entriesTable = "CREATE TABLE IF NOT EXISTS diary_entries (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                "user_id INTEGER NOT NULL," +
+                "title TEXT NOT NULL," +
+                "content TEXT NOT NULL," +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                "FOREIGN KEY (user_id) REFERENCES users(id))"
+                ;
+        
+        // Small key/value store for application state (migration progress etc.)
+        String settingsTable = "CREATE TABLE IF NOT EXISTS app_settings (" +
+                "key TEXT PRIMARY KEY," +
+                "value TEXT NOT NULL)";
+        
+        stmt.execute(usersTable);
+        stmt.execute(entriesTable);
+        stmt.execute(settingsTable);
+        
+        // Create trigger to update updated_at timestamp
+        String trigger = "CREATE TRIGGER IF NOT EXISTS update_diary_timestamp " +
+                       "AFTER UPDATE ON diary_entries " +
+                       "BEGIN " +
+                       "  UPDATE diary_entries SET updated_at = CURRENT_TIMESTAMP WHERE id = NEW.id; " +
+                       "END;";
+        stmt.execute(trigger);
     }
 
-    public static String getCurrentUser() {
-        return currentUser;
+    // Version 2: composite index backing keyset pagination of a user's entries
+    private static void createEntryIndex(Statement stmt) throws SQLException {
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_diary_entries_user_created " +
+                     "ON diary_entries (user_id, created_at DESC, id DESC)");
     }
 
-    public static int getCurrentUserId() {
-        System.out.println("Getting user ID for current user: " + currentUser);
-        if (currentUser == null) {
-            System.err.println("No current user is set!");
-            return -1;
+    /**
+     * Version 3: creates the FTS5 index over entry titles and content and the
+     * triggers that keep it in sync with diary_entries. The index is an
+     * external-content table, so the text itself is stored only once. Existing
+     * rows are indexed the first time the table is created.
+     */
+    private static void createFullTextIndex(Statement stmt) throws SQLException {
+        boolean exists;
+        try (ResultSet rs = stmt.executeQuery(
+                "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'diary_entries_fts'")) {
+            exists = rs.next();
         }
         
-        String sql = "SELECT id FROM users WHERE username = ?";
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, currentUser);
-            System.out.println("Executing query: " + sql + " with username: " + currentUser);
-            
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                int userId = rs.getInt("id");
-                System.out.println("Found user ID: " + userId + " for username: " + currentUser);
-                return userId;
-            } else {
-                System.err.println("No user found with username: " + currentUser);
+        stmt.execute("CREATE VIRTUAL TABLE IF NOT EXISTS diary_entries_fts USING fts5(" +
+                     "title, content, content='diary_entries', content_rowid='id', " +
+                     "tokenize='unicode61 remove_diacritics 2')");
+        
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS diary_entries_fts_insert " +
+                     "AFTER INSERT ON diary_entries " +
+                     "BEGIN " +
+                     "  INSERT INTO diary_entries_fts (rowid, title, content) VALUES (NEW.id, NEW.title, NEW.content); " +
+                     "END;");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS diary_entries_fts_delete " +
+                     "AFTER DELETE ON diary_entries " +
+                     "BEGIN " +
+                     "  INSERT INTO diary_entries_fts (diary_entries_fts, rowid, title, content) " +
+                     "  VALUES ('delete', OLD.id, OLD.title, OLD.content); " +
+                     "END;");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS diary_entries_fts_update " +
+                     "AFTER UPDATE OF title, content ON diary_entries " +
+                     "BEGIN " +
+                     "  INSERT INTO diary_entries_fts (diary_entries_fts, rowid, title, content) " +
+                     "  VALUES ('delete', OLD.id, OLD.title, OLD.content); " +
+                     "  INSERT INTO diary_entries_fts (rowid, title, content) VALUES (NEW.id, NEW.title, NEW.content); " +
+                     "END;");
+        
+        if (!exists) {
+            stmt.execute("INSERT INTO diary_entries_fts (diary_entries_fts) VALUES ('rebuild')");
+        }
+    }
+
+    /**
+     * Version 4: timestamps are written as INTEGER epoch milliseconds. The
+     * old trigger overwrote updated_at with a TEXT CURRENT_TIMESTAMP on every
+     * update, including the row conversion done by {@link TimestampMigration};
+     * the new one only fills updated_at in, as epoch millis, when an edit of
+     * the title or content did not set it.
+     */
+    private static void useEpochTimestamps(Statement stmt) throws SQLException {
+        stmt.execute("DROP TRIGGER IF EXISTS update_diary_timestamp");
+        stmt.execute("CREATE TRIGGER update_diary_timestamp " +
+                     "AFTER UPDATE OF title, content ON diary_entries " +
+                     "WHEN NEW.updated_at IS OLD.updated_at " +
+                     "BEGIN " +
+                     "  UPDATE diary_entries " +
+                     "  SET updated_at = CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER) " +
+                     "  WHERE id = NEW.id; " +
+                     "END;");
+    }
+
+    /**
+     * Version 5: imported entries remember a key derived from their source,
+     * unique per user, so {@link DiaryImporter} can skip rows it already
+     * inserted. Entries written in the app have no key.
+     */
+    private static void addImportKeys(Statement stmt) throws SQLException {
+        stmt.execute("ALTER TABLE diary_entries ADD COLUMN import_key TEXT");
+        stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_diary_entries_import_key " +
+                     "ON diary_entries (user_id, import_key) WHERE import_key IS NOT NULL");
+    }
+
+    /**
+     * Version 6: content may be stored compressed (see {@link ContentCodec}),
+     * so everything that reads it in SQL goes through diary_text(). The
+     * full-text index is rebuilt over a view that decodes the content, so it
+     * stays an external-content index and the text is still stored once.
+     * Updates that only change how the content is stored, as done by
+     * {@link ContentCompression}, neither touch the index nor updated_at.
+     */
+    private static void readContentThroughCodec(Statement stmt) throws SQLException {
+        String changed = "(NEW.title IS NOT OLD.title OR diary_text(NEW.content) IS NOT diary_text(OLD.content))";
+
+        stmt.execute("DROP TRIGGER IF EXISTS diary_entries_fts_insert");
+        stmt.execute("DROP TRIGGER IF EXISTS diary_entries_fts_delete");
+        stmt.execute("DROP TRIGGER IF EXISTS diary_entries_fts_update");
+        stmt.execute("DROP TABLE IF EXISTS diary_entries_fts");
+        stmt.execute("CREATE VIEW IF NOT EXISTS diary_entries_text AS " +
+                     "SELECT id, title, diary_text(content) AS content FROM diary_entries");
+        stmt.execute("CREATE VIRTUAL TABLE diary_entries_fts USING fts5(" +
+                     "title, content, content='diary_entries_text', content_rowid='id', " +
+                     "tokenize='unicode61 remove_diacritics 2')");
+
+        stmt.execute("CREATE TRIGGER diary_entries_fts_insert " +
+                     "AFTER INSERT ON diary_entries " +
+                     "BEGIN " +
+                     "  INSERT INTO diary_entries_fts (rowid, title, content) " +
+                     "  VALUES (NEW.id, NEW.title, diary_text(NEW.content)); " +
+                     "END;");
+        stmt.execute("CREATE TRIGGER diary_entries_fts_delete " +
+                     "AFTER DELETE ON diary_entries " +
+                     "BEGIN " +
+                     "  INSERT INTO diary_entries_fts (diary_entries_fts, rowid, title, content) " +
+                     "  VALUES ('delete', OLD.id, OLD.title, diary_text(OLD.content)); " +
+                     "END;");
+        stmt.execute("CREATE TRIGGER diary_entries_fts_update " +
+                     "AFTER UPDATE OF title, content ON diary_entries " +
+                     "WHEN " + changed + " " +
+                     "BEGIN " +
+                     "  INSERT INTO diary_entries_fts (diary_entries_fts, rowid, title, content) " +
+                     "  VALUES ('delete', OLD.id, OLD.title, diary_text(OLD.content)); " +
+                     "  INSERT INTO diary_entries_fts (rowid, title, content) " +
+                     "  VALUES (NEW.id, NEW.title, diary_text(NEW.content)); " +
+                     "END;");
+        stmt.execute("INSERT INTO diary_entries_fts (diary_entries_fts) VALUES ('rebuild')");
+
+        stmt.execute("DROP TRIGGER IF EXISTS update_diary_timestamp");
+        stmt.execute("CREATE TRIGGER update_diary_timestamp " +
+                     "AFTER UPDATE OF title, content ON diary_entries " +
+                     "WHEN NEW.updated_at IS OLD.updated_at AND " + changed + " " +
+                     "BEGIN " +
+                     "  UPDATE diary_entries " +
+                     "  SET updated_at = CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER) " +
+                     "  WHERE id = NEW.id; " +
+                     "END;");
+    }
+
+    /**
+     * Version 7: nothing in the schema calls diary_text() any more, so
+     * clients that do not register it can write entries again. The full-text
+     * index becomes a contentless table that deletes by rowid, and the
+     * triggers only index TEXT content, which SQLite can read as is; writers
+     * of compressed content index it with {@link #indexCompressed}. Turning
+     * TEXT into compressed content keeps the indexed text, which is
+     * unchanged, so {@link ContentCompression} need not touch the index.
+     * Snippets are built from the content by {@link SearchSnippet}.
+     */
+    private static void indexWithoutFunctions(Statement stmt) throws SQLException {
+        String textChanged = "(NEW.title IS NOT OLD.title OR " +
+                             "(typeof(NEW.content) = 'text' AND NEW.content IS NOT OLD.content))";
+
+        stmt.execute("DROP TRIGGER IF EXISTS diary_entries_fts_insert");
+        stmt.execute("DROP TRIGGER IF EXISTS diary_entries_fts_delete");
+        stmt.execute("DROP TRIGGER IF EXISTS diary_entries_fts_update");
+        stmt.execute("DROP TABLE IF EXISTS diary_entries_fts");
+        stmt.execute("DROP VIEW IF EXISTS diary_entries_text");
+        stmt.execute("CREATE VIRTUAL TABLE diary_entries_fts USING fts5(" +
+                     "title, content, content='', contentless_delete=1, " +
+                     "tokenize='unicode61 remove_diacritics 2')");
+
+        stmt.execute("CREATE TRIGGER diary_entries_fts_insert " +
+                     "AFTER INSERT ON diary_entries " +
+                     "WHEN typeof(NEW.content) = 'text' " +
+                     "BEGIN " +
+                     "  INSERT INTO diary_entries_fts (rowid, title, content) " +
+                     "  VALUES (NEW.id, NEW.title, NEW.content); " +
+                     "END;");
+        stmt.execute("CREATE TRIGGER diary_entries_fts_delete " +
+                     "AFTER DELETE ON diary_entries " +
+                     "BEGIN " +
+                     "  DELETE FROM diary_entries_fts WHERE rowid = OLD.id; " +
+                     "END;");
+        stmt.execute("CREATE TRIGGER diary_entries_fts_update " +
+                     "AFTER UPDATE OF title, content ON diary_entries " +
+                     "WHEN typeof(NEW.content) = 'text' " +
+                     "BEGIN " +
+                     "  DELETE FROM diary_entries_fts WHERE rowid = OLD.id; " +
+                     "  INSERT INTO diary_entries_fts (rowid, title, content) " +
+                     "  VALUES (NEW.id, NEW.title, NEW.content); " +
+                     "END;");
+        stmt.execute("INSERT INTO diary_entries_fts (rowid, title, content) " +
+                     "SELECT id, title, diary_text(content) FROM diary_entries");
+
+        stmt.execute("DROP TRIGGER IF EXISTS update_diary_timestamp");
+        stmt.execute("CREATE TRIGGER update_diary_timestamp " +
+                     "AFTER UPDATE OF title, content ON diary_entries " +
+                     "WHEN NEW.updated_at IS OLD.updated_at AND " + textChanged + " " +
+                     "BEGIN " +
+                     "  UPDATE diary_entries " +
+                     "  SET updated_at = CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER) " +
+                     "  WHERE id = NEW.id; " +
+                     "END;");
+    }
+
+    /**
+     * Indexes an entry whose content was just written compressed, replacing
+     * what the index held for it. The index triggers only see TEXT content,
+     * so the writer calls this in the same transaction.
+     */
+    static void indexCompressed(Connection conn, int id, String title, String content) throws SQLException {
+        try (PreparedStatement delete = conn.prepareStatement("DELETE FROM diary_entries_fts WHERE rowid = ?");
+             PreparedStatement insert = conn.prepareStatement(
+                 "INSERT INTO diary_entries_fts (rowid, title, content) VALUES (?, ?, ?)")) {
+            delete.setInt(1, id);
+            delete.executeUpdate();
+            insert.setInt(1, id);
+            insert.setString(2, title);
+            insert.setString(3, content);
+            insert.executeUpdate();
+        }
+    }
+
+    /**
+     * Reads a value from the app_settings table.
+     * @param key The setting name
+     * @return The stored value, or null if it is not set
+     */
+    public static String getSetting(String key) {
+        try (Connection conn = getConnection()) {
+            return getSetting(conn, key);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Reads a value from the app_settings table on the given connection.
+     */
+    public static String getSetting(Connection conn, String key) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT value FROM app_settings WHERE key = ?")) {
+            pstmt.setString(1, key);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getString("value") : null;
             }
+        }
+    }
+
+    /**
+     * Stores a value in the app_settings table.
+     * @param key The setting name
+     * @param value The value to store
+     */
+    public static void putSetting(String key, String value) {
+        try (Connection conn = getConnection()) {
+            putSetting(conn, key, value);
         } catch (SQLException e) {
-            System.err.println("Error getting user ID for " + currentUser + ": " + e.getMessage());
             e.printStackTrace();
         }
-        return -1;
     }
 
-    public static void addDiaryEntry(String title, String content, LocalDateTime timestamp) {
-        String sql = "INSERT INTO diary_entries (user_id, title, content, created_at) VALUES (?, ?, ?, ?)";
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, getCurrentUserId());
-            pstmt.setString(2, title);
-            pstmt.setString(3, content);
-            pstmt.setString(4, timestamp.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+    /**
+     * Stores a value in the app_settings table on the given connection, so it
+     * can be part of the caller's transaction.
+     */
+    public static void putSetting(Connection conn, String key, String value) throws SQLException {
+        String sql = "INSERT INTO app_settings (key, value) VALUES (?, ?) " +
+                   "ON CONFLICT(key) DO UPDATE SET value = excluded.value";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, key);
+            pstmt.setString(2, value);
             pstmt.executeUpdate();
+        }
+    }
+
+    public static String getCurrentUser() {
+        UserSession session = UserSession.get();
+        return session != null ? session.getUsername() : null;
+    }
+
+    /**
+     * Returns the id of the logged-in user from the session. No query is run.
+     * @return The user id, or -1 if nobody is logged in
+     */
+    public static int getCurrentUserId() {
+        UserSession session = UserSession.get();
+        if (session == null) {
+            System.err.println("No current user is set!");
+            return -1;
+        }
+        return session.getUserId();
+    }
+
+    /**
+     * Inserts an entry for the current user and adds it to the entry caches.
+     * @return The id of the new entry, or -1 if it could not be saved
+     */
+    public static int addDiaryEntry(String title, String content, LocalDateTime timestamp) {
+        String sql = "INSERT INTO diary_entries (user_id, title, content, created_at, updated_at) VALUES (?, ?, ?, ?, ?)";
+        int userId = getCurrentUserId();
+        QueryMetrics.Timer timer = QueryMetrics.start("addDiaryEntry");
+        try (Connection conn = getConnection()) {
+            long createdAt = toEpochMillis(timestamp);
+            int id;
+            // The row and, for compressed content, its index entry are written together
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, userId);
+                pstmt.setString(2, title);
+                boolean compressed = ContentCodec.bind(pstmt, 3, content);
+                pstmt.setLong(4, createdAt);
+                pstmt.setLong(5, createdAt);
+                pstmt.executeUpdate();
+                
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    id = keys.next() ? keys.getInt(1) : -1;
+                }
+                if (compressed && id > 0) {
+                    indexCompressed(conn, id, title, content);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            if (id > 0) {
+                // Stored with millisecond precision, so cache it the same way to keep the list order
+                EntryCache.added(userId, new DiaryEntry(id, userId, title, null, fromEpochMillis(createdAt)));
+                DayCountCache.invalidate(userId, YearMonth.from(timestamp));
+                ContentCache.put(id, content);
+            }
+            return id;
         } catch (SQLException e) {
+            QueryMetrics.recordError("addDiaryEntry");
             e.printStackTrace();
+            return -1;
+        } finally {
+            timer.close();
         }
     }
 
-    public static void updateDiaryEntry(int id, String title, String content, LocalDateTime timestamp) {
+    /**
+     * Updates an entry of the current user and the entry caches.
+     * @return 1 if the entry was written, 0 if the user has no such entry, or
+     *         -1 if the update failed
+     */
+    public static int updateDiaryEntry(int id, String title, String content, LocalDateTime timestamp) {
         String sql = "UPDATE diary_entries SET title = ?, content = ?, updated_at = ? WHERE id = ? AND user_id = ?";
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, title);
-            pstmt.setString(2, content);
-            pstmt.setString(3, timestamp.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-            pstmt.setInt(4, id);
-            pstmt.setInt(5, getCurrentUserId());
-            pstmt.executeUpdate();
+        int userId = getCurrentUserId();
+        QueryMetrics.Timer timer = QueryMetrics.start("updateDiaryEntry");
+        try (Connection conn = getConnection()) {
+            int updated;
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, title);
+                boolean compressed = ContentCodec.bind(pstmt, 2, content);
+                pstmt.setLong(3, toEpochMillis(timestamp));
+                pstmt.setInt(4, id);
+                pstmt.setInt(5, userId);
+                updated = pstmt.executeUpdate();
+                if (compressed && updated > 0) {
+                    indexCompressed(conn, id, title, content);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            if (updated > 0) {
+                EntryCache.updated(userId, id, title);
+                ContentCache.put(id, content);
+                return 1;
+            }
+            return 0;
         } catch (SQLException e) {
+            ContentCache.invalidate(id);
+            QueryMetrics.recordError("updateDiaryEntry");
             e.printStackTrace();
+            return -1;
+        } finally {
+            timer.close();
         }
     }
 
     public static void deleteDiaryEntry(int id) {
         String sql = "DELETE FROM diary_entries WHERE id = ? AND user_id = ?";
+        int userId = getCurrentUserId();
         Connection conn = null;
+        QueryMetrics.Timer timer = QueryMetrics.start("deleteDiaryEntry");
         try {
             conn = getConnection();
             // Disable auto-commit to control the transaction
@@ -125,17 +530,18 @@ public class Database {
             
             try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
                 pstmt.setInt(1, id);
-                pstmt.setInt(2, getCurrentUserId());
+                pstmt.setInt(2, userId);
                 int rowsAffected = pstmt.executeUpdate();
                 
                 if (rowsAffected > 0) {
                     // Commit the transaction if rows were affected
                     conn.commit();
-                    System.out.println("Successfully deleted diary entry with ID: " + id);
+                    EntryCache.removed(userId, Collections.singletonList(id));
+                    DayCountCache.clear();
+                    ContentCache.invalidate(id);
                 } else {
                     // Rollback if no rows were affected (entry didn't exist or wasn't owned by user)
                     conn.rollback();
-                    System.out.println("No diary entry found with ID: " + id + " for current user");
                 }
             } catch (SQLException e) {
                 // Rollback on any error
@@ -143,9 +549,11 @@ public class Database {
                 throw e;
             }
         } catch (SQLException e) {
+            QueryMetrics.recordError("deleteDiaryEntry");
             System.err.println("Error deleting diary entry with ID: " + id);
             e.printStackTrace();
         } finally {
+            timer.close();
             // Make sure to close the connection
             if (conn != null) {
                 try {
@@ -159,85 +567,582 @@ public class Database {
         }
     }
 
-    public static List<DiaryEntry> getDiaryEntries(int limit, int offset) {
-        List<DiaryEntry> entries = new ArrayList<>();
+    /**
+     * Deletes several of the current user's entries in a single transaction.
+     * Ids are deleted with set-based {@code WHERE id IN (...)} statements in
+     * chunks, each restricted to the current user, and committed once. The
+     * last chunk is padded with a repeated id to the same size as the others.
+     * @param ids The ids of the entries to delete
+     * @return The number of entries deleted
+     */
+    public static int deleteDiaryEntries(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<Integer> idList = new ArrayList<>(ids);
         int userId = getCurrentUserId();
-        System.out.println("=== DATABASE DEBUG ===");
-        System.out.println("Getting diary entries for user ID: " + userId);
-        
-        String sql = "SELECT id, user_id, title, content, " +
-                   "strftime('%Y-%m-%d %H:%M:%S', created_at) as created_at " +
-                   "FROM diary_entries WHERE user_id = ? " +
-                   "ORDER BY created_at DESC LIMIT ? OFFSET ?";
-        System.out.println("Executing query: " + sql);
-        System.out.println("Parameters - limit: " + limit + ", offset: " + offset);
-        
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, userId);
-            pstmt.setInt(2, limit);
-            pstmt.setInt(3, offset);
-            
-            System.out.println("Executing query...");
-            ResultSet rs = pstmt.executeQuery();
+        int deleted = 0;
+        Connection conn = null;
+        QueryMetrics.Timer timer = QueryMetrics.start("deleteDiaryEntries");
+        try {
+            conn = getConnection();
+            conn.setAutoCommit(false);
             
-            // Debug: Print column names
-            ResultSetMetaData metaData = rs.getMetaData();
-            int columnCount = metaData.getColumnCount();
-            System.out.println("\nTable columns:");
-            for (int i = 1; i <= columnCount; i++) {
-                System.out.println("  " + metaData.getColumnName(i) + " (" + metaData.getColumnTypeName(i) + ")");
+            try {
+                for (int start = 0; start < idList.size(); start += DELETE_CHUNK_SIZE) {
+                    List<Integer> chunk = idList.subList(start, Math.min(start + DELETE_CHUNK_SIZE, idList.size()));
+                    try (PreparedStatement pstmt = conn.prepareStatement(DELETE_CHUNK_SQL)) {
+                        pstmt.setInt(1, userId);
+                        for (int i = 0; i < DELETE_CHUNK_SIZE; i++) {
+                            pstmt.setInt(i + 2, chunk.get(i < chunk.size() ? i : 0));
+                        }
+                        deleted += pstmt.executeUpdate();
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                // Rollback on any error so either all or none are deleted
+                conn.rollback();
+                deleted = 0;
+                throw e;
             }
-            
-            DateTimeFormatter dbDateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-            while (rs.next()) {
-                int id = rs.getInt("id");
-                int entryUserId = rs.getInt("user_id");
-                String title = rs.getString("title");
-                String content = rs.getString("content");
-                String timestampStr = rs.getString("created_at");
-                LocalDateTime createdAt;
-                
+            EntryCache.removed(userId, idList);
+            DayCountCache.clear();
+            for (int id : idList) {
+                ContentCache.invalidate(id);
+            }
+        } catch (SQLException e) {
+            QueryMetrics.recordError("deleteDiaryEntries");
+            System.err.println("Error deleting " + idList.size() + " diary entries");
+            e.printStackTrace();
+        } finally {
+            timer.close();
+            if (conn != null) {
                 try {
-                    createdAt = LocalDateTime.parse(timestampStr, dbDateTimeFormatter);
-                } catch (Exception e) {
-                    System.err.println("Error parsing date: " + timestampStr + ", using current time");
+                    // Reset auto-commit to true for the connection pool
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException e) {
                     e.printStackTrace();
-                    createdAt = LocalDateTime.now();
                 }
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Returns the page of the current user's entries that follows the given
+     * cursor, newest first. Uses the (user_id, created_at, id) index to seek
+     * straight to the cursor, so every page costs the same no matter how deep.
+     * @param after The last entry of the previous page, or null for the first page
+     * @param limit The maximum number of entries to return
+     * @return The next page of entries
+     */
+    public static List<DiaryEntry> getDiaryEntriesAfter(PageCursor after, int limit) {
+        return searchEntries(SearchQuery.all(), after, limit);
+    }
+
+    /**
+     * Returns the next page of the current user's entries matching the query,
+     * newest first. The title and date predicates run in SQL, so every page is
+     * full unless there are no more matches. Date bounds are range predicates
+     * on the (user_id, created_at, id) index.
+     * @param query The title and date filters to apply
+     * @param after The last entry of the previous page, or null for the first page
+     * @param limit The maximum number of entries to return
+     * @return The next page of matching entries
+     */
+    public static List<DiaryEntry> searchEntries(SearchQuery query, PageCursor after, int limit) {
+        return searchEntries(query, after, limit, null);
+    }
+
+    /**
+     * Same as {@link #searchEntries(SearchQuery, PageCursor, int)}, but the
+     * query can be cancelled from another thread through the handle. Pages
+     * covered by {@link EntryCache} are answered from memory; on a miss the
+     * cached prefix is extended once before falling back to the query itself.
+     * @param handle The cancellation handle, or null
+     */
+    public static List<DiaryEntry> searchEntries(SearchQuery query, PageCursor after, int limit, QueryHandle handle) {
+        int userId = getCurrentUserId();
+        List<DiaryEntry> cached = EntryCache.find(userId, query, after, limit);
+        if (cached != null) {
+            return cached;
+        }
+        
+        QueryMetrics.Timer timer = QueryMetrics.start("searchEntries");
+        try (Connection conn = getConnection()) {
+            if (EntryCache.canFill(userId)) {
+                long version = EntryCache.version();
+                PageCursor end = EntryCache.fillCursor(userId);
+                List<DiaryEntry> fill = querySummaries(conn, userId, SearchQuery.all(), end, false,
+                                                       CACHE_FILL_SIZE, handle);
+                EntryCache.append(userId, version, end, fill, fill.size() < CACHE_FILL_SIZE);
                 
-                System.out.println("Found entry: ID=" + id + ", Title: " + title + ", Created: " + createdAt);
-                entries.add(new DiaryEntry(id, entryUserId, title, content, createdAt));
+                cached = EntryCache.find(userId, query, after, limit);
+                if (cached != null) {
+                    return cached;
+                }
             }
+            return querySummaries(conn, userId, query, after, false, limit, handle);
+        } catch (SQLException e) {
+            if (!isCancelled(handle)) {
+                QueryMetrics.recordError("searchEntries");
+                System.err.println("Error searching diary entries: " + e.getMessage());
+                e.printStackTrace();
+            }
+        } finally {
+            timer.close();
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Returns the page of matching entries just above the given position in
+     * the newest-first listing, for scrolling back up after older pages were
+     * dropped. Seeks on the same index as {@link #searchEntries}.
+     * @param query The title and date filters to apply
+     * @param before The first entry of the page below
+     * @param limit The maximum number of entries to return
+     * @param handle The cancellation handle, or null
+     * @return Up to {@code limit} entries newer than {@code before}, newest first
+     */
+    public static List<DiaryEntry> searchEntriesBefore(SearchQuery query, PageCursor before, int limit,
+                                                       QueryHandle handle) {
+        QueryMetrics.Timer timer = QueryMetrics.start("searchEntriesBefore");
+        try (Connection conn = getConnection()) {
+            List<DiaryEntry> entries = querySummaries(conn, getCurrentUserId(), query, before, true, limit, handle);
+            Collections.reverse(entries);
+            return entries;
+        } catch (SQLException e) {
+            if (!isCancelled(handle)) {
+                QueryMetrics.recordError("searchEntriesBefore");
+                System.err.println("Error searching diary entries: " + e.getMessage());
+                e.printStackTrace();
+            }
+        } finally {
+            timer.close();
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Answers a page of {@link #searchEntries} from {@link EntryCache} without
+     * touching the database, so it is safe to call on the FX thread.
+     * @return The page, or null if the cache does not cover it
+     */
+    public static List<DiaryEntry> findCachedEntries(SearchQuery query, PageCursor after, int limit) {
+        return EntryCache.find(getCurrentUserId(), query, after, limit);
+    }
+
+    // Reads entries older than the cursor, newest first; with newer set, the
+    // entries newer than the cursor, oldest first
+    private static List<DiaryEntry> querySummaries(Connection conn, int userId, SearchQuery query,
+                                                   PageCursor cursor, boolean newer, int limit,
+                                                   QueryHandle handle) throws SQLException {
+        List<DiaryEntry> entries = new ArrayList<>();
+        String createdAt = createdAtMillis();
+        StringBuilder sql = new StringBuilder(
+            "SELECT id, user_id, title, created_at FROM diary_entries WHERE user_id = ?");
+        if (query.getTitleContains() != null) {
+            sql.append(" AND title LIKE ? ESCAPE '\\'");
+        }
+        if (query.getFrom() != null) {
+            sql.append(" AND ").append(createdAt).append(" >= ?");
+        }
+        if (query.getTo() != null) {
+            sql.append(" AND ").append(createdAt).append(" < ?");
+        }
+        if (cursor != null) {
+            sql.append(" AND (").append(createdAt).append(", id) ").append(newer ? ">" : "<").append(" (?, ?)");
+        }
+        sql.append(" ORDER BY ").append(createdAt).append(newer ? " ASC, id ASC LIMIT ?" : " DESC, id DESC LIMIT ?");
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            pstmt.setInt(index++, userId);
+            if (query.getTitleContains() != null) {
+                pstmt.setString(index++, "%" + escapeLike(query.getTitleContains()) + "%");
+            }
+            if (query.getFrom() != null) {
+                pstmt.setLong(index++, toEpochMillis(query.getFrom().atStartOfDay()));
+            }
+            if (query.getTo() != null) {
+                pstmt.setLong(index++, toEpochMillis(query.getTo().plusDays(1).atStartOfDay()));
+            }
+            if (cursor != null) {
+                pstmt.setLong(index++, toEpochMillis(cursor.getCreatedAt()));
+                pstmt.setInt(index++, cursor.getId());
+            }
+            pstmt.setInt(index, limit);
             
-            if (entries.size() == 0) {
-                System.out.println("No entries found for user ID: " + userId);
-                
-                // Debug: Check if there are any entries in the table at all
-                try (Statement stmt = conn.createStatement();
-                     ResultSet allEntries = stmt.executeQuery("SELECT id, user_id, title, created_at FROM diary_entries")) {
-                    System.out.println("\nAll entries in diary_entries table:");
-                    int totalEntries = 0;
-                    while (allEntries.next()) {
-                        totalEntries++;
-                        System.out.println("  Entry ID: " + allEntries.getInt("id") + 
-                                        ", User ID: " + allEntries.getInt("user_id") +
-                                        ", Title: " + allEntries.getString("title") +
-                                        ", Created: " + allEntries.getTimestamp("created_at"));
+            attach(handle, pstmt);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    entries.add(mapSummary(rs));
+                }
+            } finally {
+                detach(handle);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Counts the current user's entries per day of a month, for highlighting
+     * days in the calendar. One aggregate query covers the whole month: it
+     * reads a range of the (user_id, created_at, id) index and groups by the
+     * local date. Results are cached in {@link DayCountCache} until a write
+     * touches the month.
+     * @param month The month to count
+     * @return The number of entries on each day that has any
+     */
+    public static Map<LocalDate, Integer> getEntryCountsForMonth(YearMonth month) {
+        int userId = getCurrentUserId();
+        Map<LocalDate, Integer> cached = DayCountCache.get(userId, month);
+        if (cached != null) {
+            return cached;
+        }
+        
+        String createdAt = createdAtMillis();
+        String sql = "SELECT date(" + createdAt + " / 1000, 'unixepoch', 'localtime') AS day, COUNT(*) AS entries " +
+                   "FROM diary_entries WHERE user_id = ? AND " + createdAt + " >= ? AND " + createdAt + " < ? " +
+                   "GROUP BY day";
+        Map<LocalDate, Integer> counts = new HashMap<>();
+        long version = DayCountCache.version();
+        QueryMetrics.Timer timer = QueryMetrics.start("getEntryCountsForMonth");
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            pstmt.setLong(2, toEpochMillis(month.atDay(1).atStartOfDay()));
+            pstmt.setLong(3, toEpochMillis(month.plusMonths(1).atDay(1).atStartOfDay()));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String day = rs.getString("day");
+                    if (day != null) {
+                        counts.put(LocalDate.parse(day), rs.getInt("entries"));
                     }
-                    System.out.println("Total entries in table: " + totalEntries);
                 }
             }
-            
+            DayCountCache.put(userId, month, counts, version);
         } catch (SQLException e) {
-            System.err.println("Error getting diary entries: " + e.getMessage());
+            QueryMetrics.recordError("getEntryCountsForMonth");
+            System.err.println("Error counting entries for " + month + ": " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            timer.close();
+        }
+        return counts;
+    }
+
+    /**
+     * Full-text search over the current user's entry titles and content.
+     * Every word in the input is matched as a prefix, title hits rank above
+     * content hits, and each result carries a highlighted snippet of the
+     * matching content. Pages follow each other by keyset on (score, id),
+     * so later pages cost no more than the first.
+     * @param text The words to search for
+     * @param after The last hit of the previous page, or null for the first page
+     * @param limit The maximum number of hits to return
+     * @return The hits, best match first
+     */
+    public static List<SearchHit> fullTextSearch(String text, SearchHit after, int limit) {
+        return fullTextSearch(text, after, limit, null);
+    }
+
+    /**
+     * Same as {@link #fullTextSearch(String, SearchHit, int)}, but the query
+     * can be cancelled from another thread through the handle.
+     * @param handle The cancellation handle, or null
+     */
+    public static List<SearchHit> fullTextSearch(String text, SearchHit after, int limit, QueryHandle handle) {
+        return queryHits("fullTextSearch", text, after, false, limit, handle);
+    }
+
+    /**
+     * Returns the hits ranked just above the given one, for scrolling back up
+     * after better-ranked pages were dropped.
+     * @param before The first hit of the page below
+     * @return Up to {@code limit} hits better than {@code before}, best match first
+     */
+    public static List<SearchHit> fullTextSearchBefore(String text, SearchHit before, int limit,
+                                                       QueryHandle handle) {
+        List<SearchHit> hits = queryHits("fullTextSearchBefore", text, before, true, limit, handle);
+        Collections.reverse(hits);
+        return hits;
+    }
+
+    /*
+     * The inner query ranks and limits by rowid and bm25 alone; the index
+     * holds no text, so the outer query reads the content of just the rows
+     * of the page and the snippets are built from it. Hits are ranked by
+     * score, then newest id first; with better set, the hits ranked above the
+     * cursor come in reverse order.
+     */
+    private static List<SearchHit> queryHits(String metric, String text, SearchHit cursor, boolean better,
+                                             int limit, QueryHandle handle) {
+        List<SearchHit> hits = new ArrayList<>();
+        String match = toMatchExpression(text);
+        if (match.isEmpty()) {
+            return hits;
         }
         
-        System.out.println("Returning " + entries.size() + " entries\n");
-        return entries;
+        StringBuilder sql = new StringBuilder(
+            "WITH page AS (" +
+            "  SELECT diary_entries_fts.rowid AS id, bm25(diary_entries_fts, 10.0, 1.0) AS score " +
+            "  FROM diary_entries_fts JOIN diary_entries e ON e.id = diary_entries_fts.rowid " +
+            "  WHERE diary_entries_fts MATCH ? AND e.user_id = ?");
+        if (cursor != null) {
+            sql.append(better ? " AND (score, -id) < (?, ?)" : " AND (score, -id) > (?, ?)");
+        }
+        sql.append(better ? " ORDER BY score DESC, id ASC LIMIT ?)" : " ORDER BY score, id DESC LIMIT ?)");
+        sql.append(" SELECT e.id, e.user_id, e.title, e.created_at, e.content, page.score " +
+                   "FROM page JOIN diary_entries e ON e.id = page.id");
+        sql.append(better ? " ORDER BY page.score DESC, page.id ASC" : " ORDER BY page.score, page.id DESC");
+        
+        QueryMetrics.Timer timer = QueryMetrics.start(metric);
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            pstmt.setString(index++, match);
+            pstmt.setInt(index++, getCurrentUserId());
+            if (cursor != null) {
+                pstmt.setDouble(index++, cursor.getScore());
+                pstmt.setInt(index++, -cursor.getEntry().getId());
+            }
+            pstmt.setInt(index, limit);
+            
+            attach(handle, pstmt);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String snippet = SearchSnippet.build(ContentCodec.decode(rs.getObject("content")), text);
+                    hits.add(new SearchHit(mapSummary(rs), snippet, rs.getDouble("score")));
+                }
+            } finally {
+                detach(handle);
+            }
+        } catch (SQLException e) {
+            if (!isCancelled(handle)) {
+                QueryMetrics.recordError(metric);
+                System.err.println("Error running full-text search: " + e.getMessage());
+                e.printStackTrace();
+            }
+        } finally {
+            timer.close();
+        }
+        return hits;
+    }
+
+    // Quote each word so user input can't inject FTS5 query syntax, and match it as a prefix
+    private static String toMatchExpression(String text) {
+        StringBuilder match = new StringBuilder();
+        for (String word : text.trim().split("\\s+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append('"').append(word.replace("\"", "\"\"")).append("\"*");
+        }
+        return match.toString();
+    }
+
+    /**
+     * Returns the body of one of the current user's entries. List queries only
+     * return summaries, so this is called when an entry is opened. Bodies are
+     * kept in {@link ContentCache}, so recently opened entries cost no query.
+     * @param id The entry id
+     * @return The entry body, or null if the entry does not exist
+     */
+    public static String getEntryContent(int id) {
+        String cached = ContentCache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        
+        String sql = "SELECT content FROM diary_entries WHERE id = ? AND user_id = ?";
+        QueryMetrics.Timer timer = QueryMetrics.start("getEntryContent");
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, id);
+            pstmt.setInt(2, getCurrentUserId());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    // Compressed content is only inflated here, when the entry is opened
+                    String content = ContentCodec.decode(rs.getObject("content"));
+                    ContentCache.put(id, content);
+                    return content;
+                }
+            }
+        } catch (SQLException e) {
+            QueryMetrics.recordError("getEntryContent");
+            e.printStackTrace();
+        } finally {
+            timer.close();
+        }
+        return null;
+    }
+
+    private static void attach(QueryHandle handle, Statement stmt) throws SQLException {
+        if (handle != null) {
+            handle.attach(stmt);
+        }
+    }
+
+    private static void detach(QueryHandle handle) {
+        if (handle != null) {
+            handle.detach();
+        }
+    }
+
+    private static boolean isCancelled(QueryHandle handle) {
+        return handle != null && handle.isCancelled();
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * The created_at expression to compare and sort by: the bare, indexed
+     * column once {@link TimestampMigration} has converted every row, and
+     * until then one that also reads rows still holding TEXT.
+     */
+    static String createdAtMillis() {
+        return TimestampMigration.isComplete() ? "created_at" : TimestampMigration.CREATED_AT_MILLIS;
+    }
+
+    // Map a list row (id, user_id, title, created_at); the body is loaded on demand
+    private static DiaryEntry mapSummary(ResultSet rs) throws SQLException {
+        return new DiaryEntry(rs.getInt("id"), rs.getInt("user_id"), rs.getString("title"), null,
+                              mapTimestamp(rs.getObject("created_at")));
+    }
+
+    // Epoch millis normally; a row the migration could not convert still holds text
+    private static LocalDateTime mapTimestamp(Object value) {
+        if (value instanceof Number) {
+            return fromEpochMillis(((Number) value).longValue());
+        }
+        Long millis = value != null ? parseLegacyTimestamp(value.toString(), ZoneId.systemDefault()) : null;
+        if (millis == null) {
+            System.err.println("Error parsing date: " + value + ", using current time");
+            return LocalDateTime.now();
+        }
+        return fromEpochMillis(millis);
+    }
+
+    /**
+     * Converts a local date-time to the epoch milliseconds stored in the
+     * timestamp columns.
+     */
+    static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Converts stored epoch milliseconds back to a local date-time.
+     */
+    static LocalDateTime fromEpochMillis(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    /**
+     * Parses a TEXT timestamp written before version 4 of the schema.
+     * @param text The stored text
+     * @param zone The zone it was written in: local time for created_at,
+     *             UTC for SQLite's CURRENT_TIMESTAMP
+     * @return The epoch milliseconds, or null if the text is not a timestamp
+     */
+    static Long parseLegacyTimestamp(String text, ZoneId zone) {
+        try {
+            return LocalDateTime.parse(text.trim(), LEGACY_DATE_TIME).atZone(zone).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Position in the newest-first entry listing: the (created_at, id) of the
+     * last entry already shown.
+     */
+    public static class PageCursor {
+        private final LocalDateTime createdAt;
+        private final int id;
+
+        public PageCursor(LocalDateTime createdAt, int id) {
+            this.createdAt = createdAt;
+            this.id = id;
+        }
+
+        public static PageCursor after(DiaryEntry entry) {
+            return new PageCursor(entry.getCreatedAt(), entry.getId());
+        }
+
+        public LocalDateTime getCreatedAt() { return createdAt; }
+        public int getId() { return id; }
+    }
+
+    /**
+     * Filters for {@link #searchEntries}: an optional case-insensitive title
+     * substring and an optional inclusive date range.
+     */
+    public static class SearchQuery {
+        private final String titleContains;
+        private final LocalDate from;
+        private final LocalDate to;
+
+        private SearchQuery(String titleContains, LocalDate from, LocalDate to) {
+            this.titleContains = titleContains == null || titleContains.isEmpty() ? null : titleContains;
+            this.from = from;
+            this.to = to;
+        }
+
+        public static SearchQuery all() {
+            return new SearchQuery(null, null, null);
+        }
+
+        public static SearchQuery byTitle(String titleContains) {
+            return new SearchQuery(titleContains, null, null);
+        }
+
+        public static SearchQuery onDate(LocalDate date) {
+            return new SearchQuery(null, date, date);
+        }
+
+        public static SearchQuery between(LocalDate from, LocalDate to) {
+            return new SearchQuery(null, from, to);
+        }
+
+        public String getTitleContains() { return titleContains; }
+        public LocalDate getFrom() { return from; }
+        public LocalDate getTo() { return to; }
+    }
+
+    /**
+     * A full-text search result: the matching entry, a highlighted excerpt of
+     * its content and its bm25 score (lower is better).
+     */
+    public static class SearchHit {
+        private final DiaryEntry entry;
+        private final String snippet;
+        private final double score;
+
+        public SearchHit(DiaryEntry entry, String snippet, double score) {
+            this.entry = entry;
+            this.snippet = snippet;
+            this.score = score;
+        }
+
+        public DiaryEntry getEntry() { return entry; }
+        public String getSnippet() { return snippet; }
+        public double getScore() { return score; }
     }
 
+    /**
+     * A diary entry. Entries returned by list and search queries are summaries
+     * whose content is null; use {@link Database#getEntryContent} for the body.
+     */
     public static class DiaryEntry {
         private final int id;
         private final int userId;
@@ -0,0 +1,69 @@
+package com.loginapp;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-day entry counts of the logged-in user, cached per month for the
+ * calendar in the date search. {@link Database} fills it from one aggregate
+ * query per month and invalidates the affected months on every write.
+ */
+public class DayCountCache {
+    private static int ownerId = -1;
+    private static final Map<YearMonth, Map<LocalDate, Integer>> months = new HashMap<>();
+    // Bumped by every invalidation, so counts read before a write are not cached after it
+    private static long version = 0;
+
+    /**
+     * @return The cached counts of the month, or null if they are not cached
+     */
+    public static synchronized Map<LocalDate, Integer> get(int userId, YearMonth month) {
+        return userId == ownerId ? months.get(month) : null;
+    }
+
+    /**
+     * @return The current version; pass it to {@link #put} with counts read
+     *         after this call
+     */
+    public static synchronized long version() {
+        return version;
+    }
+
+    /**
+     * Caches the counts of a month unless the user's entries changed since
+     * {@code readVersion}.
+     */
+    public static synchronized void put(int userId, YearMonth month, Map<LocalDate, Integer> counts,
+                                        long readVersion) {
+        if (readVersion != version) {
+            return;
+        }
+        if (userId != ownerId) {
+            ownerId = userId;
+            months.clear();
+        }
+        months.put(month, Collections.unmodifiableMap(counts));
+    }
+
+    /**
+     * Drops the cached counts of one month after an entry was added to it.
+     */
+    public static synchronized void invalidate(int userId, YearMonth month) {
+        version++;
+        if (userId == ownerId) {
+            months.remove(month);
+        }
+    }
+
+    /**
+     * Drops every cached month, e.g. after entries were deleted or when the
+     * user logs out.
+     */
+    public static synchronized void clear() {
+        version++;
+        months.clear();
+    }
+}
@@ -1,18 +1,33 @@
 package com.loginapp;
 
+import javafx.css.PseudoClass;
 import javafx.scene.control.*;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
-import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.collections.ListChangeListener;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.WeakHashMap;
 
+/**
+ * List cell for a diary entry. Cells are recycled while scrolling, so all
+ * nodes and event handlers are created once in the constructor and
+ * {@link #updateItem} only swaps text and pseudo-class states; hover and
+ * selection looks live in style.css.
+ */
 public class DiaryEntryCell extends ListCell<Database.DiaryEntry> {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MMM dd, yyyy - hh:mm a");
+    private static final PseudoClass ENTRY_SELECTED = PseudoClass.getPseudoClass("entry-selected");
+    // Formatted dates per entry; entries are immutable and dropped with the list
+    private static final Map<Database.DiaryEntry, String> dateTexts = new WeakHashMap<>();
+
     private final CheckBox checkBox = new CheckBox();
     private final Label titleLabel = new Label();
     private final Label dateLabel = new Label();
+    private final Label snippetLabel = new Label();
     private final HBox content = new HBox(10);
     private final VBox textContainer = new VBox(4);
     private final ContextMenu contextMenu = new ContextMenu();
@@ -65,17 +80,28 @@ public class DiaryEntryCell extends ListCell<Database.DiaryEntry> {
         });
         
         // Setup labels
-        titleLabel.setStyle("-fx-font-size: 14px; -fx-font-weight: bold; -fx-text-fill: #E4E4E7;");
-        dateLabel.setStyle("-fx-font-size: 12px; -fx-text-fill: #A1A1AA;");
+        titleLabel.getStyleClass().add("entry-cell-title");
+        dateLabel.getStyleClass().add("entry-cell-date");
+        snippetLabel.getStyleClass().add("entry-cell-snippet");
+        snippetLabel.setVisible(false);
+        snippetLabel.setManaged(false);
         
         // Setup layout
-        textContainer.getChildren().addAll(titleLabel, dateLabel);
-        textContainer.setPadding(new Insets(8, 16, 8, 16));
+        textContainer.getChildren().addAll(titleLabel, dateLabel, snippetLabel);
         textContainer.getStyleClass().add("diary-entry-cell");
         
         content.getChildren().addAll(checkBox, textContainer);
         content.setAlignment(Pos.CENTER_LEFT);
-        content.setStyle("-fx-padding: 4 0 4 0;");
+        content.getStyleClass().add("entry-cell-row");
+        
+        // Make sure the cell takes full width and has proper alignment
+        setMaxWidth(Double.MAX_VALUE);
+        content.setMaxWidth(Double.MAX_VALUE);
+        HBox.setHgrow(textContainer, Priority.ALWAYS);
+        setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
+        
+        // Handle click to select in selection mode
+        setOnMouseClicked(this::handleClick);
         
         // Handle right-click for context menu
         setOnContextMenuRequested(e -> {
@@ -87,9 +113,6 @@ public class DiaryEntryCell extends ListCell<Database.DiaryEntry> {
         
         // Close context menu on scroll
         setOnScroll(e -> contextMenu.hide());
-        
-        // Set up initial style
-        updateStyle(false);
     }
     
     @Override
@@ -104,60 +127,48 @@ public class DiaryEntryCell extends ListCell<Database.DiaryEntry> {
         if (empty || item == null) {
             setText(null);
             setGraphic(null);
-            setStyle("");
+            pseudoClassStateChanged(ENTRY_SELECTED, false);
         } else {
             // Set the entry title
             String title = item.getTitle() != null ? item.getTitle() : "No Title";
             titleLabel.setText(title);
             
-            // Format the date and time
-            String dateText = "No date";
-            if (item.getCreatedAt() != null) {
-                dateText = item.getCreatedAt().format(java.time.format.DateTimeFormatter.ofPattern("MMM dd, yyyy - hh:mm a"));
-            }
-            dateLabel.setText(dateText);
-            
-            // Show/hide checkbox based on selection mode
-            if (controller != null) {
-                checkBox.setSelected(controller.isEntrySelected(item));
-                checkBox.setVisible(controller.isInSelectionMode());
-            } else {
-                checkBox.setVisible(false);
-            }
+            // Format the date and time once per entry
+            dateLabel.setText(dateTexts.computeIfAbsent(item, DiaryEntryCell::formatDate));
             
-            setGraphic(content);
+            // Show the matching excerpt when the list holds full-text search results
+            String snippet = controller != null ? controller.getSnippet(item) : null;
+            snippetLabel.setText(snippet);
+            snippetLabel.setVisible(snippet != null);
+            snippetLabel.setManaged(snippet != null);
             
-            // Make sure the cell takes full width and has proper alignment
-            setMaxWidth(Double.MAX_VALUE);
-            content.setMaxWidth(Double.MAX_VALUE);
-            HBox.setHgrow(textContainer, javafx.scene.layout.Priority.ALWAYS);
+            // Show/hide checkbox based on selection mode
+            boolean selected = controller != null && controller.isEntrySelected(item);
+            checkBox.setSelected(selected);
+            checkBox.setVisible(controller != null && controller.isInSelectionMode());
+            pseudoClassStateChanged(ENTRY_SELECTED, selected);
             
             // Set the cell content
             setGraphic(content);
-            setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
-            
-            // Set the style based on hover state
-            setOnMouseEntered(e -> updateStyle(true));
-            setOnMouseExited(e -> updateStyle(false));
-            
-            // Handle click to select in selection mode
-            setOnMouseClicked(e -> {
-                Database.DiaryEntry currentItem = getItem();
-                if (controller != null && currentItem != null) {
-                    if (controller.isInSelectionMode() && e.getClickCount() == 1) {
-                        // In selection mode, toggle selection on click
-                        controller.toggleEntrySelection(currentItem);
-                        e.consume();
-                    } else if (e.getClickCount() == 2) {
-                        // Double-click to open entry
-                        controller.openEntry(currentItem);
-                        e.consume();
-                    }
-                }
-            });
-            
-            // Force a layout pass
-            content.requestLayout();
+        }
+    }
+    
+    private static String formatDate(Database.DiaryEntry entry) {
+        return entry.getCreatedAt() != null ? entry.getCreatedAt().format(DATE_FORMAT) : "No date";
+    }
+    
+    private void handleClick(MouseEvent e) {
+        Database.DiaryEntry currentItem = getItem();
+        if (controller != null && currentItem != null) {
+            if (controller.isInSelectionMode() && e.getClickCount() == 1) {
+                // In selection mode, toggle selection on click
+                controller.toggleEntrySelection(currentItem);
+                e.consume();
+            } else if (e.getClickCount() == 2) {
+                // Double-click to open entry
+                controller.openEntry(currentItem);
+                e.consume();
+            }
         }
     }
     
@@ -170,11 +181,4 @@ public class DiaryEntryCell extends ListCell<Database.DiaryEntry> {
             }
         }
     }
-    
-    private void updateStyle(boolean hover) {
-        String style = "-fx-background-radius: 4; -fx-border-radius: 4; -fx-padding: 8;" +
-                     (hover ? " -fx-background-color: #2A2A3A; -fx-border-color: #4F4F4F; -fx-cursor: hand;" 
-                            : " -fx-background-color: #1E1E2E; -fx-border-color: #3F3F3F;");
-        textContainer.setStyle(style);
-    }
 }
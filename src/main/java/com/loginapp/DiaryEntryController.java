@@ -1,12 +1,16 @@
 package com.loginapp;
 
+import javafx.animation.Animation;
+import javafx.animation.PauseTransition;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
+import javafx.util.Duration;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
-public class DiaryEntryController {
+public class DiaryEntryController implements ReusableView {
     @FXML private Button backButton;
     @FXML private ToggleButton writeToggle;
     @FXML private ToggleButton viewToggle;
@@ -14,20 +18,28 @@ public class DiaryEntryController {
     @FXML private TextField titleField;
     @FXML private Label dateLabel;
     @FXML private TextArea contentArea;
+    
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private boolean contentLoaded = false;
+
+    // Autosave: edits are snapshotted to the draft journal at most once per interval
+    private static final Duration AUTOSAVE_INTERVAL = Duration.seconds(2);
+    private final PauseTransition autosave = new PauseTransition(AUTOSAVE_INTERVAL);
+    // The fields as loaded, so merely opening an entry writes no draft
+    private String loadedTitle = null;
+    private String loadedContent = null;
+    // Set by the first snapshot of this editor session
+    private String draftId = null;
+    // Counts editor sessions, so a save finishing late knows whether its session is still open
+    private int session = 0;
 
     @FXML
     public void initialize() {
-        System.out.println("DiaryEntryController initialized. writeMode=" + DiaryContext.writeMode);
+        System.out.println("DiaryEntryController initialized");
         ToggleGroup group = new ToggleGroup();
         writeToggle.setToggleGroup(group);
         viewToggle.setToggleGroup(group);
-        if (DiaryContext.writeMode) {
-            writeToggle.setSelected(true);
-        } else {
-            viewToggle.setSelected(true);
-        }
-        updateFieldsFromContext();
-        setEditMode(DiaryContext.writeMode);
 
         group.selectedToggleProperty().addListener((obs, oldToggle, newToggle) -> {
             boolean editable = (newToggle == writeToggle);
@@ -36,28 +48,119 @@ public class DiaryEntryController {
 
         backButton.setOnAction(e -> onBackClicked());
         okButton.setOnAction(e -> onOkClicked());
+
+        // The timer is not restarted by further edits, so steady typing is
+        // still saved every interval
+        autosave.setOnFinished(e -> saveDraft());
+        titleField.textProperty().addListener((obs, oldText, newText) -> scheduleDraft());
+        contentArea.textProperty().addListener((obs, oldText, newText) -> scheduleDraft());
+    }
+
+    /**
+     * The view is reused for every entry, so the fields are filled from
+     * {@link DiaryContext} each time it is shown rather than in initialize.
+     */
+    @Override
+    public void onViewShown() {
+        System.out.println("DiaryEntryController shown. writeMode=" + DiaryContext.writeMode);
+        contentArea.setPromptText("Write your diary entry here...");
+        autosave.stop();
+        session++;
+        draftId = null;
+        setSaving(false);
+        loadedTitle = null;
+        loadedContent = null;
+        updateFieldsFromContext();
+        setEditMode(DiaryContext.writeMode);
     }
 
     private void updateFieldsFromContext() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")
-            .withZone(ZoneId.systemDefault());
-            
         if (DiaryContext.currentEntry != null) {
             titleField.setText(DiaryContext.currentEntry.getTitle());
-            dateLabel.setText(formatter.format(DiaryContext.currentEntry.getCreatedAt()));
-            contentArea.setText(DiaryContext.currentEntry.getContent());
+            dateLabel.setText(DATE_FORMAT.format(DiaryContext.currentEntry.getCreatedAt()));
+            loadContent(DiaryContext.currentEntry);
         } else {
             titleField.setText("");
-            dateLabel.setText(formatter.format(LocalDateTime.now()));
+            dateLabel.setText(DATE_FORMAT.format(LocalDateTime.now()));
             contentArea.setText("");
+            contentLoaded = true;
+            markLoaded("", "");
+        }
+    }
+
+    // List entries are summaries; fetch the body, from the cache when possible
+    private void loadContent(Database.DiaryEntry entry) {
+        String cached = ContentCache.get(entry.getId());
+        if (cached != null) {
+            contentArea.setText(cached);
+            contentLoaded = true;
+            markLoaded(entry.getTitle(), cached);
+            return;
+        }
+        
+        // Keep the entry read-only until its body is in, so saving can't wipe it
+        contentLoaded = false;
+        contentArea.clear();
+        contentArea.setPromptText("Loading...");
+        DiaryRepository.getEntryContent(entry.getId()).thenAccept(content -> {
+            if (DiaryContext.currentEntry != entry) {
+                return;
+            }
+            contentArea.setPromptText("Write your diary entry here...");
+            contentArea.setText(content != null ? content : "");
+            contentLoaded = true;
+            markLoaded(entry.getTitle(), contentArea.getText());
+            setEditMode(writeToggle.isSelected());
+        }).exceptionally(e -> {
+            e.printStackTrace();
+            showAlert("Error", "Failed to load diary entry: " + e.getMessage());
+            return null;
+        });
+    }
+
+    private void markLoaded(String title, String content) {
+        loadedTitle = title;
+        loadedContent = content;
+    }
+
+    private void scheduleDraft() {
+        if (contentLoaded && autosave.getStatus() != Animation.Status.RUNNING) {
+            autosave.playFromStart();
+        }
+    }
+
+    // Hands a snapshot of the fields to the journal thread; nothing here touches the disk
+    private void saveDraft() {
+        if (!contentLoaded || loadedContent == null) {
+            return;
+        }
+        String title = titleField.getText();
+        String content = contentArea.getText();
+        if (draftId == null && title.equals(loadedTitle) && content.equals(loadedContent)) {
+            return;
+        }
+        if (draftId == null) {
+            draftId = UUID.randomUUID().toString();
+        }
+        int entryId = DiaryContext.currentEntry != null ? DiaryContext.currentEntry.getId() : -1;
+        DraftJournal.save(new DraftJournal.Draft(draftId, Database.getCurrentUserId(), entryId,
+                                                 System.currentTimeMillis(), title, content));
+    }
+
+    // The entry was saved or the edit abandoned, so the draft is not restored later
+    private void endDraft() {
+        autosave.stop();
+        if (draftId != null) {
+            DraftJournal.end(draftId);
+            draftId = null;
         }
     }
 
     private void setEditMode(boolean editable) {
         System.out.println("Setting edit mode to: " + editable);
         titleField.setEditable(editable);
-        contentArea.setEditable(editable);
-        okButton.setDisable(!editable);
+        contentArea.setEditable(editable && contentLoaded);
+        okButton.setDisable(!editable || !contentLoaded);
         
         // Update the toggle buttons to reflect the current mode
         if (editable) {
@@ -68,6 +171,7 @@ public class DiaryEntryController {
     }
 
     private void onBackClicked() {
+        endDraft();
         try {
             Main.setRoot("DiaryMain.fxml");
         } catch (Exception e) {
@@ -85,23 +189,58 @@ public class DiaryEntryController {
             return;
         }
         
-        try {
-            if (DiaryContext.currentEntry == null) {
-                // Create new entry with current timestamp
-                Database.addDiaryEntry(title, content, timestamp);
-            } else {
-                // Update existing entry with current timestamp
-                Database.updateDiaryEntry(
-                    DiaryContext.currentEntry.getId(),
-                    title,
-                    content,
-                    timestamp
-                );
+        // Journal the final text first, so it survives if the save fails
+        autosave.stop();
+        saveDraft();
+
+        // Save in the background and go back to the list once it is written;
+        // the draft is only ended then. Nothing can leave or change the editor
+        // meanwhile, so a failed save keeps both the text and its draft.
+        final int savedSession = session;
+        final String savedDraftId = draftId;
+        setSaving(true);
+        CompletableFuture<?> save;
+        if (DiaryContext.currentEntry == null) {
+            // Create new entry with current timestamp
+            save = DiaryRepository.addDiaryEntry(title, content, timestamp);
+        } else {
+            // Update existing entry with current timestamp
+            save = DiaryRepository.updateDiaryEntry(
+                DiaryContext.currentEntry.getId(),
+                title,
+                content,
+                timestamp
+            );
+        }
+        save.whenComplete((result, e) -> {
+            if (e == null && savedDraftId != null) {
+                DraftJournal.end(savedDraftId);
+            }
+            if (session != savedSession) {
+                return;
+            }
+            if (e == null) {
+                draftId = null;
+                onBackClicked();
+                return;
             }
-            onBackClicked();
-        } catch (Exception e) {
             e.printStackTrace();
+            setSaving(false);
             showAlert("Error", "Failed to save diary entry: " + e.getMessage());
+        });
+    }
+
+    // Locks the editor while a save is in flight and unlocks it into the current mode
+    private void setSaving(boolean saving) {
+        backButton.setDisable(saving);
+        writeToggle.setDisable(saving);
+        viewToggle.setDisable(saving);
+        if (saving) {
+            titleField.setEditable(false);
+            contentArea.setEditable(false);
+            okButton.setDisable(true);
+        } else {
+            setEditMode(writeToggle.isSelected());
         }
     }
     
@@ -112,6 +251,4 @@ public class DiaryEntryController {
         alert.setContentText(message);
         alert.showAndWait();
     }
-
-    // TODO: Add methods for handling toggle, back, and ok actions
 }
@@ -0,0 +1,284 @@
+package com.loginapp;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exports the logged-in user's diary as a JSON Lines file or as a zip of
+ * Markdown files, in the formats {@link DiaryImporter} reads back. Every entry
+ * carries its import key, so importing an export skips the entries the
+ * diary already has. Entries are
+ * read through one forward-only cursor and written as they arrive, so memory
+ * use does not grow with the size of the diary. The output goes to a temporary
+ * file next to the target, which replaces the target only once the export is
+ * complete; a cancelled or failed export leaves nothing behind.
+ */
+public class DiaryExporter {
+    // Rows the driver steps through per fetch
+    private static final int FETCH_SIZE = 256;
+    // Report progress every this many entries
+    private static final int PROGRESS_STEP = 500;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd HHmm");
+
+    /**
+     * Receives progress from the exporting thread.
+     */
+    public interface ProgressListener {
+        /**
+         * @param done Entries written so far
+         * @param total Entries the user had when the export started
+         */
+        void onProgress(int done, int total);
+    }
+
+    // Writes one entry to the output
+    private interface EntryWriter {
+        void write(int id, String importKey, String title, String content, long createdAt, long updatedAt)
+                throws IOException;
+    }
+
+    /**
+     * Writes every entry as one JSON object per line.
+     * @param target The file to create or replace
+     * @param progress Told about progress every few hundred entries, may be null
+     * @param handle Cancels the export, may be null
+     * @return The number of entries written, or -1 if the export was cancelled
+     */
+    public static int exportJsonLines(Path target, ProgressListener progress, QueryHandle handle)
+            throws IOException, SQLException {
+        ZoneId zone = ZoneId.systemDefault();
+        return export(target, progress, handle, out -> {
+            Writer writer = new BufferedWriter(Channels.newWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            StringBuilder line = new StringBuilder();
+            return new Export(writer, writer::flush, (id, importKey, title, content, createdAt, updatedAt) -> {
+                line.setLength(0);
+                line.append("{\"id\":").append(id);
+                if (importKey != null) {
+                    line.append(",\"import_key\":");
+                    appendJsonString(line, importKey);
+                }
+                line.append(",\"title\":");
+                appendJsonString(line, title);
+                line.append(",\"content\":");
+                appendJsonString(line, content);
+                line.append(",\"created_at\":\"").append(formatTimestamp(createdAt, zone))
+                    .append("\",\"updated_at\":\"").append(formatTimestamp(updatedAt, zone)).append("\"}\n");
+                writer.append(line);
+            });
+        });
+    }
+
+    /**
+     * Writes every entry as a Markdown file with front matter into a zip.
+     * @param target The zip file to create or replace
+     * @param progress Told about progress every few hundred entries, may be null
+     * @param handle Cancels the export, may be null
+     * @return The number of entries written, or -1 if the export was cancelled
+     */
+    public static int exportMarkdownZip(Path target, ProgressListener progress, QueryHandle handle)
+            throws IOException, SQLException {
+        ZoneId zone = ZoneId.systemDefault();
+        return export(target, progress, handle, out -> {
+            ZipOutputStream zip = new ZipOutputStream(
+                new BufferedOutputStream(Channels.newOutputStream(out), BUFFER_SIZE), StandardCharsets.UTF_8);
+            return new Export(zip, () -> {
+                zip.finish();
+                zip.flush();
+            }, (id, importKey, title, content, createdAt, updatedAt) -> {
+                // The id keeps names unique without remembering the ones already written
+                String name = Instant.ofEpochMilli(createdAt).atZone(zone).format(FILE_DATE)
+                              + " " + fileNamePart(title) + " " + id;
+                zip.putNextEntry(new ZipEntry(name + ".md"));
+                // JSON strings are valid YAML double-quoted scalars
+                StringBuilder text = new StringBuilder("---\ntitle: ");
+                appendJsonString(text, title);
+                text.append("\ndate: ").append(formatTimestamp(createdAt, zone)).append('\n');
+                if (importKey != null) {
+                    text.append("import_key: ");
+                    appendJsonString(text, importKey);
+                    text.append('\n');
+                }
+                text.append("---\n").append(content).append('\n');
+                zip.write(text.toString().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            });
+        });
+    }
+
+    private interface IOAction {
+        void run() throws IOException;
+    }
+
+    // An open output, how to write entries to it and how to write out what it buffers
+    private static class Export {
+        final Closeable output;
+        final IOAction finish;
+        final EntryWriter writer;
+
+        Export(Closeable output, IOAction finish, EntryWriter writer) {
+            this.output = output;
+            this.finish = finish;
+            this.writer = writer;
+        }
+    }
+
+    private interface ExportFactory {
+        Export open(FileChannel out) throws IOException;
+    }
+
+    private static int export(Path target, ProgressListener progress, QueryHandle handle, ExportFactory format)
+            throws IOException, SQLException {
+        int userId = Database.getCurrentUserId();
+        if (userId < 0) {
+            throw new IllegalStateException("Log in before exporting entries");
+        }
+
+        long started = System.nanoTime();
+        Path absolute = target.toAbsolutePath();
+        Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName() + ".", ".part");
+        boolean complete = false;
+        QueryMetrics.Timer timer = QueryMetrics.start("exportEntries");
+        try (Connection conn = Database.getConnection()) {
+            int total = countEntries(conn, userId);
+            int written = 0;
+
+            String sql = "SELECT id, " + DiaryImporter.IMPORT_KEY_SQL + " AS import_key, " +
+                         "title, content, created_at, updated_at FROM diary_entries " +
+                         "WHERE user_id = ? ORDER BY " + Database.createdAtMillis() + ", id";
+            // Not through the statement cache: the cursor must be closed when done
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING);
+                 PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                                                                 ResultSet.CONCUR_READ_ONLY)) {
+                Export export = format.open(out);
+                pstmt.setInt(1, userId);
+                pstmt.setFetchSize(FETCH_SIZE);
+                if (handle != null) {
+                    handle.attach(pstmt);
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        if (handle != null && handle.isCancelled()) {
+                            return -1;
+                        }
+                        int id = rs.getInt("id");
+                        long createdAt = toMillis(id, rs.getObject("created_at"));
+                        long updatedAt = toMillis(id, rs.getObject("updated_at"));
+                        String title = rs.getString("title");
+                        String content = ContentCodec.decode(rs.getObject("content"));
+                        export.writer.write(id, rs.getString("import_key"), title != null ? title : "",
+                                            content != null ? content : "", createdAt, updatedAt);
+                        written++;
+                        if (progress != null && written % PROGRESS_STEP == 0) {
+                            progress.onProgress(written, Math.max(total, written));
+                        }
+                    }
+                } catch (SQLException e) {
+                    if (handle != null && handle.isCancelled()) {
+                        return -1;
+                    }
+                    throw e;
+                } finally {
+                    if (handle != null) {
+                        handle.detach();
+                    }
+                }
+                export.finish.run();
+                out.force(false);
+                export.output.close();
+            }
+
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            complete = true;
+            if (progress != null) {
+                progress.onProgress(written, written);
+            }
+            double seconds = (System.nanoTime() - started) / 1_000_000_000.0;
+            System.out.println(String.format("Exported %d entries to %s in %.1f s.", written, absolute, seconds));
+            return written;
+        } catch (SQLException e) {
+            QueryMetrics.recordError("exportEntries");
+            throw e;
+        } finally {
+            timer.close();
+            if (!complete) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    private static int countEntries(Connection conn, int userId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT COUNT(*) FROM diary_entries WHERE user_id = ?")) {
+            pstmt.setInt(1, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    // Timestamps are epoch millis; text left behind by the timestamp migration is read as local time
+    private static long toMillis(int id, Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        Long millis = value != null ? Database.parseLegacyTimestamp(value.toString(), ZoneId.systemDefault()) : null;
+        if (millis == null) {
+            System.err.println("Entry " + id + " has an unreadable timestamp, exported as 0: " + value);
+            return 0;
+        }
+        return millis;
+    }
+
+    private static String formatTimestamp(long millis, ZoneId zone) {
+        return DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(Instant.ofEpochMilli(millis).atZone(zone));
+    }
+
+    // A title reduced to characters every file system and zip tool accepts
+    private static String fileNamePart(String title) {
+        String cleaned = title.replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "").trim();
+        if (cleaned.length() > 60) {
+            cleaned = cleaned.substring(0, 60).trim();
+        }
+        return cleaned.isEmpty() ? "Untitled" : cleaned;
+    }
+
+    private static void appendJsonString(StringBuilder sb, String text) {
+        sb.append('"');
+        if (text != null) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '"': sb.append("\\\""); break;
+                    case '\\': sb.append("\\\\"); break;
+                    case '\n': sb.append("\\n"); break;
+                    case '\r': sb.append("\\r"); break;
+                    case '\t': sb.append("\\t"); break;
+                    default:
+                        if (c < 0x20) {
+                            sb.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            sb.append(c);
+                        }
+                }
+            }
+        }
+        sb.append('"');
+    }
+}
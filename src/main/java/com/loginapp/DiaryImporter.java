@@ -0,0 +1,668 @@
+package com.loginapp;
+
+import java.io.BufferedReader;
+import java.io.Console;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Imports diary entries written with other tools for the logged-in user. The
+ * source is either a JSON Lines file, one object per line with "title",
+ * "content", "created_at" and optionally "updated_at", "id" and "import_key",
+ * or a folder of
+ * Markdown files, one entry per file. Sources are read one entry at a time,
+ * so their size does not matter, and rows are inserted in batches, several
+ * batches per transaction. Every row carries an import key (the one the
+ * source gives, else the source id, else a hash of the entry) which is unique
+ * per user, so importing the same source again only adds what is new. Entries
+ * written in the app get the key {@link DiaryExporter} exports them with, so
+ * importing an export back into the diary it came from adds nothing either.
+ */
+public class DiaryImporter {
+    private static final int BATCH_SIZE = 1000;
+    private static final int COMMIT_SIZE = 10_000;
+    private static final Pattern DATE_PREFIX = Pattern.compile("^(\\d{4}-\\d{2}-\\d{2})");
+
+    /**
+     * The import key of a diary_entries row in SQL: the stored key, or for an
+     * entry written in the app, one made from its id and creation time.
+     */
+    static final String IMPORT_KEY_SQL =
+        "COALESCE(import_key, 'app:' || id || ':' || " + TimestampMigration.CREATED_AT_MILLIS + ")";
+
+    /**
+     * What an import did.
+     */
+    public static class Result {
+        private final int imported;
+        private final int skipped;
+        private final int failed;
+        private final double seconds;
+
+        Result(int imported, int skipped, int failed, double seconds) {
+            this.imported = imported;
+            this.skipped = skipped;
+            this.failed = failed;
+            this.seconds = seconds;
+        }
+
+        /** @return Entries inserted */
+        public int getImported() { return imported; }
+        /** @return Entries that were already imported before */
+        public int getSkipped() { return skipped; }
+        /** @return Source entries that could not be read */
+        public int getFailed() { return failed; }
+        public double getSeconds() { return seconds; }
+
+        public double getRowsPerSecond() {
+            return seconds > 0 ? (imported + skipped) / seconds : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Imported %d entries, skipped %d already imported, %d unreadable, in %.1f s (%.0f rows/s)",
+                                 imported, skipped, failed, seconds, getRowsPerSecond());
+        }
+    }
+
+    // One entry as read from the source
+    private static class SourceEntry {
+        final String importKey;
+        final String sourceId;
+        final String title;
+        final String content;
+        final long createdAt;
+        final long updatedAt;
+
+        SourceEntry(String importKey, String sourceId, String title, String content, long createdAt,
+                    long updatedAt) {
+            this.importKey = importKey;
+            this.sourceId = sourceId;
+            this.title = title;
+            this.content = content;
+            this.createdAt = createdAt;
+            this.updatedAt = updatedAt;
+        }
+    }
+
+    /**
+     * Imports a JSON Lines file, or every Markdown file under a folder, for
+     * the logged-in user. Runs on the calling thread; never call it on the FX
+     * thread.
+     * @param source A .jsonl file or a folder of .md files
+     * @return The counts and throughput of the import
+     */
+    public static Result importFile(Path source) throws IOException, SQLException {
+        int userId = Database.getCurrentUserId();
+        if (userId < 0) {
+            throw new IllegalStateException("Log in before importing entries");
+        }
+
+        long started = System.nanoTime();
+        try (Connection conn = Database.getConnection();
+             Inserter inserter = new Inserter(conn, userId)) {
+            inserter.keyAppEntries();
+            if (Files.isDirectory(source)) {
+                importMarkdown(source, inserter);
+            } else {
+                importJsonLines(source, inserter);
+            }
+            inserter.finish();
+
+            Result result = new Result(inserter.imported, inserter.skipped, inserter.failed,
+                                       (System.nanoTime() - started) / 1_000_000_000.0);
+            System.out.println(result + " from " + source);
+            return result;
+        } finally {
+            // Listings, searches and calendar counts have to be read again
+            EntryCache.clear();
+            DayCountCache.clear();
+        }
+    }
+
+    private static void importJsonLines(Path file, Inserter inserter) throws IOException, SQLException {
+        ZoneId zone = ZoneId.systemDefault();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                SourceEntry entry;
+                try {
+                    entry = fromJson(new JsonReader(line).readObject(), zone);
+                } catch (IllegalArgumentException e) {
+                    entry = null;
+                    System.err.println(file + " line " + lineNumber + ": " + e.getMessage());
+                }
+                if (entry == null) {
+                    inserter.failed++;
+                    continue;
+                }
+                inserter.add(entry);
+            }
+        }
+    }
+
+    private static SourceEntry fromJson(Map<String, Object> json, ZoneId zone) {
+        Object title = json.get("title");
+        Object content = json.get("content");
+        Long createdAt = toMillis(json.get("created_at"), zone);
+        if (createdAt == null) {
+            throw new IllegalArgumentException("missing or unreadable created_at");
+        }
+        Long updatedAt = toMillis(json.get("updated_at"), zone);
+        Object id = json.get("id");
+        Object importKey = json.get("import_key");
+        return new SourceEntry(importKey != null ? importKey.toString() : null,
+                               id != null ? id.toString() : null,
+                               title != null ? title.toString() : "Untitled",
+                               content != null ? content.toString() : "",
+                               createdAt, updatedAt != null ? updatedAt : createdAt);
+    }
+
+    // Numbers are epoch milliseconds, text is an ISO or "yyyy-MM-dd HH:mm:ss" date
+    private static Long toMillis(Object value, ZoneId zone) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return value instanceof String ? parseTimestamp((String) value, zone) : null;
+    }
+
+    private static void importMarkdown(Path folder, Inserter inserter) throws IOException, SQLException {
+        ZoneId zone = ZoneId.systemDefault();
+        // Files.walk lists the tree lazily, so only one file is held at a time
+        try (Stream<Path> paths = Files.walk(folder)) {
+            Iterator<Path> files = paths.filter(DiaryImporter::isMarkdown).iterator();
+            while (files.hasNext()) {
+                Path file = files.next();
+                try {
+                    inserter.add(fromMarkdown(file, zone));
+                } catch (IOException e) {
+                    inserter.failed++;
+                    System.err.println("Could not read " + file + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static boolean isMarkdown(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return (name.endsWith(".md") || name.endsWith(".markdown")) && Files.isRegularFile(path);
+    }
+
+    /*
+     * The title comes from a "title:" line in front matter, else a leading
+     * "# " heading, else the file name. The date comes from a "date:" line in
+     * front matter, else a yyyy-MM-dd file name prefix, else the modified time.
+     */
+    private static SourceEntry fromMarkdown(Path file, ZoneId zone) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        Map<String, String> frontMatter = new HashMap<>();
+        int bodyStart = 0;
+        if (!lines.isEmpty() && lines.get(0).trim().equals("---")) {
+            for (int i = 1; i < lines.size() && bodyStart == 0; i++) {
+                String line = lines.get(i);
+                if (line.trim().equals("---")) {
+                    bodyStart = i + 1;
+                    continue;
+                }
+                int colon = line.indexOf(':');
+                if (colon > 0) {
+                    frontMatter.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT),
+                                    unquote(line.substring(colon + 1).trim()));
+                }
+            }
+            if (bodyStart == 0) {
+                // No closing line, so it was not front matter after all
+                frontMatter.clear();
+            }
+        }
+
+        String fileName = file.getFileName().toString();
+        String title = frontMatter.get("title");
+        while (bodyStart < lines.size() && lines.get(bodyStart).isBlank()) {
+            bodyStart++;
+        }
+        if (title == null && bodyStart < lines.size() && lines.get(bodyStart).startsWith("# ")) {
+            title = lines.get(bodyStart).substring(2).trim();
+            bodyStart++;
+        }
+        if (title == null || title.isEmpty()) {
+            title = fileName.substring(0, fileName.lastIndexOf('.'));
+        }
+        String content = String.join("\n", lines.subList(bodyStart, lines.size())).strip();
+
+        Long createdAt = null;
+        for (String key : new String[] { "date", "created", "created_at" }) {
+            if (createdAt == null && frontMatter.containsKey(key)) {
+                createdAt = parseTimestamp(frontMatter.get(key), zone);
+            }
+        }
+        Matcher prefix = DATE_PREFIX.matcher(fileName);
+        if (createdAt == null && prefix.find()) {
+            createdAt = parseTimestamp(prefix.group(1), zone);
+        }
+        if (createdAt == null) {
+            createdAt = Files.getLastModifiedTime(file).toMillis();
+        }
+        return new SourceEntry(frontMatter.get("import_key"), null, title, content, createdAt, createdAt);
+    }
+
+    // Reads a YAML double-quoted scalar with its escapes, or a single-quoted one
+    private static String unquote(String value) {
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            try {
+                return new JsonReader(value).readWholeString();
+            } catch (IllegalArgumentException e) {
+                // Quotes inside were not escaped, as in exports written before they were
+                return value.substring(1, value.length() - 1);
+            }
+        }
+        if (value.length() >= 2 && value.startsWith("'") && value.endsWith("'")) {
+            return value.substring(1, value.length() - 1).replace("''", "'");
+        }
+        return value;
+    }
+
+    /**
+     * Reads an ISO instant or offset date-time, a local ISO date-time or
+     * "yyyy-MM-dd HH:mm:ss" in the given zone, or a plain date at the start
+     * of that day.
+     * @return Epoch milliseconds, or null if the text is none of these
+     */
+    static Long parseTimestamp(String text, ZoneId zone) {
+        text = text.trim();
+        try {
+            return OffsetDateTime.parse(text).toInstant().toEpochMilli();
+        } catch (DateTimeParseException ignored) {
+        }
+        try {
+            return Instant.parse(text).toEpochMilli();
+        } catch (DateTimeParseException ignored) {
+        }
+        try {
+            return LocalDateTime.parse(text).atZone(zone).toInstant().toEpochMilli();
+        } catch (DateTimeParseException ignored) {
+        }
+        Long legacy = Database.parseLegacyTimestamp(text, zone);
+        if (legacy != null) {
+            return legacy;
+        }
+        try {
+            return LocalDate.parse(text).atStartOfDay(zone).toInstant().toEpochMilli();
+        } catch (DateTimeParseException ignored) {
+        }
+        return null;
+    }
+
+    /*
+     * Inserts entries in batches of BATCH_SIZE and commits every COMMIT_SIZE
+     * rows. INSERT OR IGNORE leaves out rows whose import key exists already;
+     * their update count of 0 is what counts them as skipped.
+     */
+    private static class Inserter implements AutoCloseable {
+        private static final String SQL =
+            "INSERT OR IGNORE INTO diary_entries (user_id, title, content, created_at, updated_at, import_key) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+        private final Connection conn;
+        private final int userId;
+        private final PreparedStatement insert;
+        private final MessageDigest sha256;
+        // Entries of the pending batch stored compressed, indexed once inserted
+        private final Map<Integer, SourceEntry> compressed = new HashMap<>();
+        private int batched = 0;
+        private int uncommitted = 0;
+        int imported = 0;
+        int skipped = 0;
+        int failed = 0;
+
+        Inserter(Connection conn, int userId) throws SQLException {
+            this.conn = conn;
+            this.userId = userId;
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+            conn.setAutoCommit(false);
+            insert = conn.prepareStatement(SQL);
+        }
+
+        // Gives the user's entries written in the app, which have no key yet, the
+        // one they are exported with, so an export of them is skipped
+        void keyAppEntries() throws SQLException {
+            try (PreparedStatement update = conn.prepareStatement(
+                    "UPDATE diary_entries SET import_key = " + IMPORT_KEY_SQL +
+                    " WHERE user_id = ? AND import_key IS NULL")) {
+                update.setInt(1, userId);
+                update.executeUpdate();
+            }
+        }
+
+        void add(SourceEntry entry) throws SQLException {
+            insert.setInt(1, userId);
+            insert.setString(2, entry.title);
+            boolean compressedContent = ContentCodec.bind(insert, 3, entry.content);
+            insert.setLong(4, entry.createdAt);
+            insert.setLong(5, entry.updatedAt);
+            String key = importKey(entry);
+            insert.setString(6, key);
+            insert.addBatch();
+            if (compressedContent) {
+                compressed.put(batched, new SourceEntry(key, entry.sourceId, entry.title, entry.content,
+                                                        entry.createdAt, entry.updatedAt));
+            }
+            if (++batched >= BATCH_SIZE) {
+                flush();
+            }
+            if (++uncommitted >= COMMIT_SIZE) {
+                commit();
+            }
+        }
+
+        void finish() throws SQLException {
+            commit();
+        }
+
+        private void flush() throws SQLException {
+            if (batched == 0) {
+                return;
+            }
+            int[] counts = insert.executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    imported++;
+                    SourceEntry entry = compressed.get(i);
+                    if (entry != null) {
+                        index(entry);
+                    }
+                } else {
+                    skipped++;
+                }
+            }
+            compressed.clear();
+            batched = 0;
+        }
+
+        private void index(SourceEntry entry) throws SQLException {
+            try (PreparedStatement select = conn.prepareStatement(
+                    "SELECT id FROM diary_entries WHERE user_id = ? AND import_key = ?")) {
+                select.setInt(1, userId);
+                select.setString(2, entry.importKey);
+                try (ResultSet rs = select.executeQuery()) {
+                    if (rs.next()) {
+                        Database.indexCompressed(conn, rs.getInt(1), entry.title, entry.content);
+                    }
+                }
+            }
+        }
+
+        private void commit() throws SQLException {
+            flush();
+            conn.commit();
+            uncommitted = 0;
+        }
+
+        private String importKey(SourceEntry entry) {
+            if (entry.importKey != null) {
+                return entry.importKey;
+            }
+            if (entry.sourceId != null) {
+                return "id:" + entry.sourceId;
+            }
+            sha256.update(entry.title.getBytes(StandardCharsets.UTF_8));
+            sha256.update((byte) 0);
+            sha256.update(Long.toString(entry.createdAt).getBytes(StandardCharsets.UTF_8));
+            sha256.update((byte) 0);
+            StringBuilder key = new StringBuilder("sha256:");
+            for (byte b : sha256.digest(entry.content.getBytes(StandardCharsets.UTF_8))) {
+                key.append(String.format("%02x", b));
+            }
+            return key.toString();
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                // Rolls back only what finish() did not commit, e.g. after an error
+                conn.rollback();
+            } finally {
+                insert.close();
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /*
+     * Just enough JSON for one object per line: nested objects and arrays
+     * are read but only the top-level fields are used.
+     */
+    private static class JsonReader {
+        private final String text;
+        private int pos = 0;
+
+        JsonReader(String text) {
+            this.text = text;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> readObject() {
+            Object value = readValue();
+            skipWhitespace();
+            if (!(value instanceof Map) || pos != text.length()) {
+                throw new IllegalArgumentException("expected one JSON object");
+            }
+            return (Map<String, Object>) value;
+        }
+
+        String readWholeString() {
+            String value = readString();
+            if (pos != text.length()) {
+                throw error("expected one JSON string");
+            }
+            return value;
+        }
+
+        private Object readValue() {
+            skipWhitespace();
+            if (pos >= text.length()) {
+                throw error("unexpected end of line");
+            }
+            char c = text.charAt(pos);
+            switch (c) {
+                case '{': return readMap();
+                case '[': return readList();
+                case '"': return readString();
+                case 't': return readLiteral("true", Boolean.TRUE);
+                case 'f': return readLiteral("false", Boolean.FALSE);
+                case 'n': return readLiteral("null", null);
+                default: return readNumber();
+            }
+        }
+
+        private Map<String, Object> readMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            pos++;
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return map;
+            }
+            while (true) {
+                skipWhitespace();
+                if (peek() != '"') {
+                    throw error("expected a field name");
+                }
+                String key = readString();
+                skipWhitespace();
+                expect(':');
+                map.put(key, readValue());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect('}');
+                    return map;
+                }
+            }
+        }
+
+        private List<Object> readList() {
+            List<Object> list = new ArrayList<>();
+            pos++;
+            skipWhitespace();
+            if (peek() == ']') {
+                pos++;
+                return list;
+            }
+            while (true) {
+                list.add(readValue());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect(']');
+                    return list;
+                }
+            }
+        }
+
+        private String readString() {
+            pos++;
+            StringBuilder sb = new StringBuilder();
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) {
+                    break;
+                }
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case 'n': sb.append('\n'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        if (pos + 4 > text.length()) {
+                            throw error("bad \\u escape");
+                        }
+                        try {
+                            sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("bad \\u escape");
+                        }
+                        pos += 4;
+                        break;
+                    default: sb.append(escaped);
+                }
+            }
+            throw error("unterminated string");
+        }
+
+        private Object readNumber() {
+            int start = pos;
+            while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) {
+                pos++;
+            }
+            String number = text.substring(start, pos);
+            try {
+                if (number.contains(".") || number.contains("e") || number.contains("E")) {
+                    return Double.parseDouble(number);
+                }
+                return Long.parseLong(number);
+            } catch (NumberFormatException e) {
+                throw error("unexpected character");
+            }
+        }
+
+        private Object readLiteral(String literal, Object value) {
+            if (!text.startsWith(literal, pos)) {
+                throw error("unexpected character");
+            }
+            pos += literal.length();
+            return value;
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw error("expected '" + c + "'");
+            }
+            pos++;
+        }
+
+        private char peek() {
+            return pos < text.length() ? text.charAt(pos) : '\0';
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at column " + (pos + 1));
+        }
+    }
+
+    /**
+     * Imports from the command line: {@code DiaryImporter <username> <file or folder>}.
+     * The password is read from the console.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: DiaryImporter <username> <entries.jsonl | markdown folder>");
+            System.exit(2);
+        }
+        Bootstrap.awaitReady();
+
+        Console console = System.console();
+        String password;
+        if (console != null) {
+            password = new String(console.readPassword("Password for %s: ", args[0]));
+        } else {
+            password = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)).readLine();
+        }
+        if (password == null || !UserDAO.login(args[0], password)) {
+            System.err.println("Login failed for " + args[0]);
+            System.exit(1);
+        }
+
+        importFile(Paths.get(args[1]));
+        ConnectionManager.shutdown();
+    }
+}
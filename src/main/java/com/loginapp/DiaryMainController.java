@@ -8,25 +8,38 @@ import javafx.scene.control.*;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.input.MouseButton;
-import javafx.scene.input.ScrollEvent;
 import javafx.application.Platform;
 import javafx.scene.control.cell.TextFieldListCell;
 import javafx.scene.control.ContentDisplay;
 import java.time.format.DateTimeFormatter;
 import javafx.collections.ListChangeListener;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 import java.util.ResourceBundle;
-import java.util.stream.Collectors;
 import java.net.URL;
 import javafx.scene.control.ToggleGroup;
 import javafx.scene.control.SelectionMode;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
 import javafx.beans.binding.Bindings;
+import javafx.css.PseudoClass;
+import javafx.scene.layout.HBox;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.FileChooser;
+import java.io.File;
+import java.nio.file.Path;
 
-public class DiaryMainController implements Initializable {
+public class DiaryMainController implements Initializable, ReusableView {
     
     // UI Components
     @FXML private TextField searchField;
@@ -38,23 +51,57 @@ public class DiaryMainController implements Initializable {
     @FXML private Button fabButton;
     @FXML private ToolBar selectionToolbar;
     @FXML private Label selectionCountLabel;  // For the selected items count
+    @FXML private MenuButton dataMenu;
+    @FXML private HBox exportBar;
+    @FXML private Label exportLabel;
+    @FXML private ProgressBar exportProgress;
     
     // State
     private boolean selectionMode = false;
     private final ObservableList<Database.DiaryEntry> selectedEntries = FXCollections.observableArrayList();
     private final ObservableList<Database.DiaryEntry> visibleEntries = FXCollections.observableArrayList();
-    private static final int PAGE_SIZE = 10;
-    private int loadedCount = 0;
+    private static final int PAGE_SIZE = 50;
+    // Rows kept loaded around the viewport; pages further away are dropped
+    private static final int MAX_LOADED_ENTRIES = 10 * PAGE_SIZE;
+    // Start fetching the next page this many rows before the loaded end
+    private static final int PREFETCH_THRESHOLD = PAGE_SIZE / 2;
+    private Database.SearchQuery activeQuery = Database.SearchQuery.all();
+    private String activeFullTextQuery = null;
+    private Database.PageCursor nextCursor = null;
+    // The last loaded full-text hit; the next page of hits starts after it
+    private Database.SearchHit nextHit = null;
+    private final Map<Integer, String> snippets = new HashMap<>();
+    // bm25 scores of the loaded full-text hits, the keys for paging back up
+    private final Map<Integer, Double> scores = new HashMap<>();
+    private boolean endReached = false;
+    private boolean startReached = true;
+    // At most one fetch in flight per direction
+    private boolean loadingForward = false;
+    private boolean loadingBackward = false;
+    private int searchGeneration = 0;
+    private QueryHandle forwardLoad = null;
+    private QueryHandle backwardLoad = null;
+    private ScrollPrefetcher prefetcher;
+    private final SearchScheduler searchScheduler = new SearchScheduler();
+    // The user the list was last shown for; the view is reused across logins
+    private int shownForUserId = -1;
+    // The export in progress, if any
+    private QueryHandle exportHandle = null;
+    
+    // Calendar highlighting: per-day counts by month, loaded one month per query
+    private static final PseudoClass HAS_ENTRIES = PseudoClass.getPseudoClass("has-entries");
+    private final Map<YearMonth, Map<LocalDate, Integer>> dayCounts = new HashMap<>();
+    private final Set<YearMonth> dayCountsLoading = new HashSet<>();
+    // Weak, so cells of a calendar popup the picker has rebuilt can be collected
+    private final Set<DayCountCell> dayCells = Collections.newSetFromMap(new WeakHashMap<>());
     
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         try {
-            // Initialize the database
-            Database.init();
-            
             // Set up UI components
             setupListView();
             setupSearchBar();
+            setupCalendar();
             setupToggleListeners();
             
             // Set up FAB button
@@ -82,11 +129,6 @@ public class DiaryMainController implements Initializable {
                 searchField.getScene().getWindow().setUserData(this);
             }
             
-            // Load initial entries
-            System.out.println("Loading initial entries...");
-            filterAndShowEntries();
-            System.out.println("Loaded " + visibleEntries.size() + " entries");
-            
             // Set up entry selection
             setupEntrySelection();
             
@@ -95,6 +137,63 @@ public class DiaryMainController implements Initializable {
             showError("Initialization Error", "Failed to initialize the application: " + e.getMessage());
         }
     }
+
+    /**
+     * Shown after login and whenever the user comes back from an entry. The
+     * search is kept when returning from an entry and reset for a new user;
+     * either way the list is refreshed, which the entry cache usually answers
+     * without a query.
+     */
+    @Override
+    public void onViewShown() {
+        selectedEntries.clear();
+        setSelectionMode(false);
+        
+        int userId = Database.getCurrentUserId();
+        if (userId != shownForUserId) {
+            shownForUserId = userId;
+            visibleEntries.clear();
+            snippets.clear();
+            scores.clear();
+            nameToggle.setSelected(true);
+            searchField.clear();
+            searchScheduler.cancel();
+            offerDraftRecovery(userId);
+        }
+        // Entries may have been written since; the database cache knows which months changed
+        dayCounts.clear();
+        refreshDayCells();
+        filterAndShowEntries();
+    }
+
+    // Entries still being edited when the app last stopped, e.g. in a crash, are left in the draft journal
+    private void offerDraftRecovery(int userId) {
+        DraftJournal.pendingDrafts(userId).thenAccept(drafts -> {
+            if (drafts.isEmpty() || userId != shownForUserId) {
+                return;
+            }
+            StringBuilder titles = new StringBuilder();
+            for (DraftJournal.Draft draft : drafts) {
+                String title = draft.getTitle().isBlank() ? "(untitled)" : draft.getTitle();
+                titles.append("\n- ").append(title).append(draft.getEntryId() > 0 ? " (edit)" : " (new)");
+            }
+            ButtonType restore = new ButtonType("Restore", ButtonBar.ButtonData.OK_DONE);
+            ButtonType discard = new ButtonType("Discard", ButtonBar.ButtonData.CANCEL_CLOSE);
+            Alert alert = new Alert(Alert.AlertType.CONFIRMATION, "", restore, discard);
+            alert.setTitle("Unsaved Entries");
+            alert.setHeaderText(drafts.size() + " unsaved " + (drafts.size() == 1 ? "entry was" : "entries were")
+                                + " recovered from your last session");
+            alert.setContentText("Restore them into your diary?" + titles);
+            if (alert.showAndWait().orElse(discard) == restore) {
+                DraftJournal.restore(drafts).thenAccept(restored -> filterAndShowEntries());
+            } else {
+                for (DraftJournal.Draft draft : drafts) {
+                    DraftJournal.end(draft.getDraftId());
+                }
+            }
+        });
+    }
+
     // Selection mode methods
     private void setSelectionMode(boolean enabled) {
         selectionMode = enabled;
@@ -128,10 +227,19 @@ public class DiaryMainController implements Initializable {
         
         alert.showAndWait().ifPresent(response -> {
             if (response == ButtonType.OK) {
-                for (Database.DiaryEntry entry : new ArrayList<>(selectedEntries)) {
-                    Database.deleteDiaryEntry(entry.getId());
-                    visibleEntries.remove(entry);
+                // Delete everything selected in one transaction
+                final List<Database.DiaryEntry> toDelete = new ArrayList<>(selectedEntries);
+                final List<Integer> ids = new ArrayList<>();
+                for (Database.DiaryEntry entry : toDelete) {
+                    ids.add(entry.getId());
                 }
+                DiaryRepository.deleteDiaryEntries(ids).thenAccept(deleted -> {
+                    if (deleted > 0) {
+                        visibleEntries.removeAll(toDelete);
+                    } else {
+                        showError("Delete Failed", "The selected entries could not be deleted.");
+                    }
+                });
                 selectedEntries.clear();
                 setSelectionMode(false);
             }
@@ -167,9 +275,10 @@ public class DiaryMainController implements Initializable {
             
             alert.showAndWait().ifPresent(response -> {
                 if (response == ButtonType.OK) {
-                    Database.deleteDiaryEntry(entry.getId());
-                    visibleEntries.remove(entry);
-                    selectedEntries.remove(entry);
+                    DiaryRepository.deleteDiaryEntry(entry.getId()).thenRun(() -> {
+                        visibleEntries.remove(entry);
+                        selectedEntries.remove(entry);
+                    });
                 }
             });
         }
@@ -223,15 +332,162 @@ public class DiaryMainController implements Initializable {
     }
     
 
+    @FXML
+    private void handleImportJsonLines() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import JSON Lines");
+        chooser.getExtensionFilters().addAll(
+            new FileChooser.ExtensionFilter("JSON Lines", "*.jsonl", "*.ndjson", "*.json"),
+            new FileChooser.ExtensionFilter("All files", "*.*"));
+        File file = chooser.showOpenDialog(Main.getPrimaryStage());
+        if (file != null) {
+            runImport(file);
+        }
+    }
+
+    @FXML
+    private void handleImportMarkdown() {
+        DirectoryChooser chooser = new DirectoryChooser();
+        chooser.setTitle("Import Markdown Folder");
+        File folder = chooser.showDialog(Main.getPrimaryStage());
+        if (folder != null) {
+            runImport(folder);
+        }
+    }
+
+    // Imports on a thread of its own, so long imports do not hold up the repository's reads
+    private void runImport(File source) {
+        dataMenu.setDisable(true);
+        DiaryRepository.submitOn(work -> {
+            Thread thread = new Thread(work, "diary-import");
+            thread.setDaemon(true);
+            thread.start();
+        }, () -> {
+            try {
+                return DiaryImporter.importFile(source.toPath());
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }).whenComplete((result, error) -> {
+            dataMenu.setDisable(false);
+            if (error != null) {
+                error.printStackTrace();
+                showError("Import Failed", "Could not import " + source.getName() + ": " + error.getMessage());
+                return;
+            }
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle("Import Finished");
+            alert.setHeaderText(null);
+            alert.setContentText(result.toString() + ".");
+            alert.show();
+            filterAndShowEntries();
+        });
+    }
+
+    @FXML
+    private void handleExportJsonLines() {
+        File file = chooseExportFile("Export as JSON Lines", "diary.jsonl",
+                                     new FileChooser.ExtensionFilter("JSON Lines", "*.jsonl"));
+        if (file != null) {
+            runExport(file, DiaryExporter::exportJsonLines);
+        }
+    }
+
+    @FXML
+    private void handleExportMarkdownZip() {
+        File file = chooseExportFile("Export as Markdown zip", "diary.zip",
+                                     new FileChooser.ExtensionFilter("Zip archive", "*.zip"));
+        if (file != null) {
+            runExport(file, DiaryExporter::exportMarkdownZip);
+        }
+    }
+
+    @FXML
+    private void cancelExport() {
+        if (exportHandle != null) {
+            exportHandle.cancel();
+            exportLabel.setText("Cancelling...");
+        }
+    }
+
+    private File chooseExportFile(String title, String fileName, FileChooser.ExtensionFilter filter) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle(title);
+        chooser.setInitialFileName(fileName);
+        chooser.getExtensionFilters().add(filter);
+        return chooser.showSaveDialog(Main.getPrimaryStage());
+    }
+
+    private interface ExportFormat {
+        int export(Path target, DiaryExporter.ProgressListener progress, QueryHandle handle)
+            throws Exception;
+    }
+
+    // Exports on a thread of its own and shows its progress until it finishes or is cancelled
+    private void runExport(File target, ExportFormat format) {
+        QueryHandle handle = new QueryHandle();
+        exportHandle = handle;
+        dataMenu.setDisable(true);
+        exportProgress.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
+        exportLabel.setText("Exporting to " + target.getName() + "...");
+        exportBar.setManaged(true);
+        exportBar.setVisible(true);
+
+        DiaryExporter.ProgressListener progress = (done, total) -> Platform.runLater(() -> {
+            if (exportHandle == handle && !handle.isCancelled()) {
+                exportProgress.setProgress(total > 0 ? (double) done / total : 1);
+                exportLabel.setText("Exported " + done + " of " + total + " entries");
+            }
+        });
+        DiaryRepository.submitOn(work -> {
+            Thread thread = new Thread(work, "diary-export");
+            thread.setDaemon(true);
+            thread.start();
+        }, () -> {
+            try {
+                return format.export(target.toPath(), progress, handle);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }).whenComplete((written, error) -> {
+            exportHandle = null;
+            exportBar.setVisible(false);
+            exportBar.setManaged(false);
+            dataMenu.setDisable(false);
+            if (error != null) {
+                error.printStackTrace();
+                showError("Export Failed", "Could not export to " + target.getName() + ": " + error.getMessage());
+            } else if (written >= 0) {
+                Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                alert.setTitle("Export Finished");
+                alert.setHeaderText(null);
+                alert.setContentText("Exported " + written + " entries to " + target.getName() + ".");
+                alert.show();
+            }
+        });
+    }
+
     @FXML
     private void handleLogout() {
         try {
-            // Clear any user session data if needed
+            // Clear the search field when logging out
+            searchField.clear();
             
+            // End the user session and drop any search still running for it
+            searchScheduler.cancel();
+            cancelPageLoads();
+            cancelExport();
+            visibleEntries.clear();
+            snippets.clear();
+            scores.clear();
+            shownForUserId = -1;
+            UserSession.clear();
+            EntryCache.clear();
+            DayCountCache.clear();
+            ContentCache.clear();
+
             // Load the login view with .fxml extension
             Main.setRoot("Login.fxml");
-            // Clear the search field when logging out
-            searchField.clear();
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -247,16 +503,18 @@ public class DiaryMainController implements Initializable {
         nameToggle.setSelected(true);
         setupNameSearch();
         
-        // Add listeners to toggle buttons
+        // Add listeners to toggle buttons; switching mode re-runs the search at once
         dateToggle.selectedProperty().addListener((obs, oldVal, newVal) -> {
             if (newVal) {
                 setupDateFormatter();
+                filterAndShowEntries();
             }
         });
         
         nameToggle.selectedProperty().addListener((obs, oldVal, newVal) -> {
             if (newVal) {
                 setupNameSearch();
+                filterAndShowEntries();
             }
         });
     }
@@ -277,13 +535,87 @@ public class DiaryMainController implements Initializable {
         }
     }
     
+    // Highlight calendar days that have entries
+    private void setupCalendar() {
+        if (datePicker != null) {
+            datePicker.setDayCellFactory(picker -> {
+                DayCountCell cell = new DayCountCell();
+                dayCells.add(cell);
+                return cell;
+            });
+        }
+    }
+    
+    // Number of entries on a day; a month not loaded yet counts as empty until its query returns
+    private int dayCount(LocalDate date) {
+        YearMonth month = YearMonth.from(date);
+        Map<LocalDate, Integer> counts = dayCounts.get(month);
+        if (counts == null) {
+            loadDayCounts(month);
+            return 0;
+        }
+        return counts.getOrDefault(date, 0);
+    }
+    
+    private void loadDayCounts(YearMonth month) {
+        if (Database.getCurrentUser() == null || !dayCountsLoading.add(month)) {
+            return;
+        }
+        final int userId = Database.getCurrentUserId();
+        DiaryRepository.getEntryCountsForMonth(month).whenComplete((counts, e) -> {
+            dayCountsLoading.remove(month);
+            if (e != null) {
+                e.printStackTrace();
+                return;
+            }
+            if (userId != Database.getCurrentUserId()) {
+                return;
+            }
+            dayCounts.put(month, counts);
+            refreshDayCells();
+        });
+    }
+    
+    // DatePicker has no refresh, so the cells it created are updated directly
+    private void refreshDayCells() {
+        for (DayCountCell cell : dayCells) {
+            cell.showCount();
+        }
+    }
+    
+    /**
+     * Calendar day that shows whether the user wrote entries on it.
+     */
+    private class DayCountCell extends DateCell {
+        // Reused for every day the cell shows; created on the first day with entries
+        private Tooltip tooltip = null;
+        
+        @Override
+        public void updateItem(LocalDate date, boolean empty) {
+            super.updateItem(date, empty);
+            showCount();
+        }
+        
+        void showCount() {
+            LocalDate date = getItem();
+            int count = isEmpty() || date == null ? 0 : dayCount(date);
+            pseudoClassStateChanged(HAS_ENTRIES, count > 0);
+            if (count == 0) {
+                setTooltip(null);
+                return;
+            }
+            if (tooltip == null) {
+                tooltip = new Tooltip();
+            }
+            tooltip.setText(count == 1 ? "1 entry" : count + " entries");
+            setTooltip(tooltip);
+        }
+    }
+    
     // Set up name search functionality
     private void setupNameSearch() {
         if (searchField != null) {
             searchField.clear();
-            searchField.textProperty().addListener((obs, oldVal, newVal) -> {
-                filterAndShowEntries();
-            });
             
             // Show search field and hide date picker
             searchField.setVisible(true);
@@ -334,12 +666,9 @@ public class DiaryMainController implements Initializable {
         placeholder.setStyle("-fx-text-fill: #A1A1AA; -fx-font-style: italic; -fx-padding: 16px; -fx-font-size: 14px;");
         entryList.setPlaceholder(placeholder);
         
-        // Set up lazy loading on scroll
-        entryList.addEventFilter(ScrollEvent.SCROLL, e -> {
-            if (e.getDeltaY() < 0) {
-                loadMoreEntries();
-            }
-        });
+        // Fetch pages ahead of the viewport in whichever direction it moves
+        prefetcher = new ScrollPrefetcher(entryList, PREFETCH_THRESHOLD,
+                                          this::loadPreviousEntries, this::loadMoreEntries);
         
         // The items are already set above, no need to set them again
         
@@ -354,18 +683,10 @@ public class DiaryMainController implements Initializable {
         // Set up entry selection
         setupEntrySelection();
         
-        // Load initial entries
-        loadMoreEntries();
-        
         System.out.println("=== List view setup complete ===");
     }
     
     private void setupSearchBar() {
-        // Set up toggle group
-        ToggleGroup group = new ToggleGroup();
-        dateToggle.setToggleGroup(group);
-        nameToggle.setToggleGroup(group);
-        
         // Set initial state - default to date search
         dateToggle.setSelected(true);
         
@@ -390,23 +711,9 @@ public class DiaryMainController implements Initializable {
             datePicker.applyCss();
         }
         
-        // Single listener for toggle changes
-        group.selectedToggleProperty().addListener((obs, oldToggle, newToggle) -> {
-            if (newToggle == dateToggle) {
-                searchField.setPromptText("YYYY-MM-DD");
-                setupDateFormatter();
-            } else {
-                searchField.setPromptText("Search by name");
-                setupNameSearch();
-            }
-            searchField.clear();
-            filterAndShowEntries();
-        });
-        
-        // Add text change listener for search
+        // The only text listener: keystrokes are coalesced and only the newest search runs
         searchField.textProperty().addListener((obs, oldVal, newVal) -> {
-            // Filter entries based on search text
-            filterAndShowEntries();
+            searchScheduler.debounce(this::filterAndShowEntries);
         });
     }
 
@@ -432,196 +739,293 @@ public class DiaryMainController implements Initializable {
         }
     }
 
+    // Build the database query for the current date search; name search goes through the full-text index
+    private Database.SearchQuery currentSearchQuery() {
+        if (dateToggle.isSelected()) {
+            LocalDate selectedDate = datePicker.getValue();
+            return selectedDate != null ? Database.SearchQuery.onDate(selectedDate) : Database.SearchQuery.all();
+        }
+        return Database.SearchQuery.all();
+    }
+
     private void filterAndShowEntries() {
-        System.out.println("\n=== filterAndShowEntries() called ===");
-        final String searchText = searchField.getText().trim().toLowerCase();
-        final LocalDate selectedDate = datePicker.getValue();
-        final boolean searchByDate = dateToggle.isSelected();
-        
-        // Determine the final search text to use
-        final String finalSearchText;
-        if (searchByDate) {
-            if (selectedDate == null) {
-                // If in date mode but no date selected, show all entries
-                entryList.setItems(visibleEntries);
-                return;
+        // Get current user from session
+        final String currentUser = Database.getCurrentUser();
+        
+        if (currentUser == null || currentUser.isEmpty()) {
+            System.err.println("ERROR: No user is currently logged in!");
+            showError("Not Logged In", "You must be logged in to view diary entries.");
+            return;
+        }
+        
+        final String searchText = searchField.getText().trim();
+        activeFullTextQuery = !dateToggle.isSelected() && !searchText.isEmpty() ? searchText : null;
+        activeQuery = currentSearchQuery();
+        nextCursor = null;
+        nextHit = null;
+        endReached = false;
+        startReached = true;
+        snippets.clear();
+        scores.clear();
+        
+        // Pages still loading belong to the previous search
+        cancelPageLoads();
+        
+        // Coming back to the list usually finds the page in the entry cache
+        List<Database.SearchHit> cached = cachedPage();
+        if (cached != null) {
+            searchScheduler.cancel();
+            showFirstPage(cached);
+            return;
+        }
+        loadingForward = true;
+        
+        // Run the search in the database and show the first page of matches;
+        // the scheduler cancels and discards any older search still running
+        searchScheduler.submit(nextPageQuery(), hits -> {
+            loadingForward = false;
+            showFirstPage(hits);
+        }, e -> {
+            loadingForward = false;
+            System.err.println("\n[ERROR] in filterAndShowEntries: " + e.getMessage());
+            e.printStackTrace();
+            showError("Error Loading Entries", "An error occurred while loading diary entries: " + e.getMessage());
+        });
+    }
+
+    private void showFirstPage(List<Database.SearchHit> hits) {
+        visibleEntries.setAll(applyPage(hits));
+        entryList.scrollTo(0);
+        entryList.refresh();
+    }
+
+    // Cancel and disown the page fetches of the current search
+    private void cancelPageLoads() {
+        searchGeneration++;
+        for (QueryHandle handle : new QueryHandle[] { forwardLoad, backwardLoad }) {
+            if (handle != null) {
+                handle.cancel();
             }
-            // Convert LocalDate to string in YYYY-MM-DD format for comparison
-            finalSearchText = selectedDate.toString();
-        } else {
-            finalSearchText = searchText;
+        }
+        forwardLoad = null;
+        backwardLoad = null;
+        loadingForward = false;
+        loadingBackward = false;
+    }
+
+    private void loadMoreEntries() {
+        // Load the page below the loaded rows, one fetch at a time
+        if (endReached || loadingForward || visibleEntries.isEmpty()) {
+            return;
         }
         
-        System.out.println("Search text: '" + searchText + "', Search by date: " + searchByDate);
+        List<Database.SearchHit> cached = cachedPage();
+        if (cached != null) {
+            appendPage(cached);
+            return;
+        }
         
-        try {
-            // Get current user from session
-            final String currentUser = Database.getCurrentUser();
-            System.out.println("Current user from session: " + (currentUser != null ? currentUser : "null"));
-            
-            if (currentUser == null || currentUser.isEmpty()) {
-                System.err.println("ERROR: No user is currently logged in!");
-                final String errorMessage = "You must be logged in to view diary entries.";
-                Platform.runLater(() -> showError("Not Logged In", errorMessage));
+        final int generation = searchGeneration;
+        final QueryHandle handle = new QueryHandle();
+        final Function<QueryHandle, List<Database.SearchHit>> query = nextPageQuery();
+        forwardLoad = handle;
+        loadingForward = true;
+        DiaryRepository.submit(() -> query.apply(handle)).whenComplete((hits, e) -> {
+            if (generation != searchGeneration || handle.isCancelled()) {
                 return;
             }
-            
-            final int currentUserId = Database.getCurrentUserId();
-            System.out.println("Current user ID: " + currentUserId);
-            
-            if (currentUserId == -1) {
-                System.err.println("ERROR: Failed to get current user ID!");
+            forwardLoad = null;
+            loadingForward = false;
+            if (e != null) {
+                e.printStackTrace();
                 return;
             }
-            
-            // Get entries from database
-            System.out.println("\n[DEBUG] Fetching diary entries from database...");
-            final List<Database.DiaryEntry> allEntries = Database.getDiaryEntries(PAGE_SIZE, 0);
-            System.out.println("[DEBUG] Retrieved " + allEntries.size() + " entries from database");
-            
-            // Print all entries for debugging
-            if (!allEntries.isEmpty()) {
-                System.out.println("\n[DEBUG] All entries from database:");
-                for (int i = 0; i < allEntries.size(); i++) {
-                    final Database.DiaryEntry entry = allEntries.get(i);
-                    System.out.println(String.format("  [%d] ID: %d, Title: '%s', Created: %s, UserID: %d", 
-                        i, entry.getId(), entry.getTitle(), 
-                        entry.getCreatedAt(), entry.getUserId()));
-                }
+            appendPage(hits);
+        });
+    }
+
+    private void loadPreviousEntries() {
+        // Reload the page above the loaded rows after it was dropped, one fetch at a time
+        if (startReached || loadingBackward || visibleEntries.isEmpty()) {
+            return;
+        }
+        
+        final int generation = searchGeneration;
+        final QueryHandle handle = new QueryHandle();
+        final Function<QueryHandle, List<Database.SearchHit>> query = previousPageQuery();
+        backwardLoad = handle;
+        loadingBackward = true;
+        DiaryRepository.submit(() -> query.apply(handle)).whenComplete((hits, e) -> {
+            if (generation != searchGeneration || handle.isCancelled()) {
+                return;
             }
-            
-            // Filter entries based on search criteria
-            System.out.println("\n[DEBUG] Filtering entries...");
-            List<Database.DiaryEntry> filteredEntries = allEntries.stream()
-                .filter(entry -> {
-                    if (entry == null) {
-                        System.out.println("[WARNING] Found null entry in the list!");
-                        return false;
-                    }
-                    
-                    // If search text is empty, include all entries
-                    if (finalSearchText.isEmpty()) {
-                        System.out.println("[DEBUG] No search text, including entry: " + entry.getTitle());
-                        return true;
-                    }
-                    
-                    boolean matches;
-                    if (searchByDate) {
-                        // Format the date to match the search format (YYYY-MM-DD)
-                        final String formattedDate = entry.getCreatedAt().toLocalDate().toString();
-                        matches = formattedDate.contains(finalSearchText);
-                        System.out.println(String.format("[DEBUG] Date search - Entry: %s, Date: %s, Formatted: %s, Search: '%s', Match: %b", 
-                            entry.getTitle(), entry.getCreatedAt(), formattedDate, finalSearchText, matches));
-                    } else {
-                        final String title = entry.getTitle().toLowerCase();
-                        matches = title.contains(finalSearchText);
-                        System.out.println(String.format("[DEBUG] Title search - Entry: %s, Title: %s, Search: '%s', Match: %b", 
-                            entry.getTitle(), title, finalSearchText, matches));
-                    }
-                    
-                    return matches;
-                })
-                .sorted((e1, e2) -> e2.getCreatedAt().compareTo(e1.getCreatedAt())) // Newest first
-                .collect(Collectors.toList());
-            
-            System.out.println("\n[DEBUG] Found " + filteredEntries.size() + " entries after filtering");
-            final List<Database.DiaryEntry> finalFilteredEntries = filteredEntries;
-            
-            // Update the visible entries on the JavaFX Application Thread
-            Platform.runLater(() -> {
-                try {
-                    System.out.println("\n[DEBUG] Updating visible entries in UI...");
-                    System.out.println("[DEBUG] Current visible entries before update: " + visibleEntries.size());
-                    
-                    // Clear and add all to trigger list change events
-                    visibleEntries.setAll(filteredEntries);
-                    
-                    // Force refresh of the ListView
-                    entryList.refresh();
-                    
-                    loadedCount = filteredEntries.size();
-                    
-                    // Debug: Print the first entry if available
-                    if (!visibleEntries.isEmpty()) {
-                        Database.DiaryEntry first = visibleEntries.get(0);
-                        System.out.println("[DEBUG] First visible entry - Title: " + first.getTitle() + 
-                                       ", Date: " + first.getCreatedAt() + 
-                                       ", ID: " + first.getId());
-                    }
-                    System.out.println("[DEBUG] Visible entries after update: " + visibleEntries.size());
-                    
-                    // Force refresh of the ListView
-                    System.out.println("[DEBUG] Refreshing ListView...");
-                    entryList.refresh();
-                    
-                    if (!filteredEntries.isEmpty()) {
-                        System.out.println("[DEBUG] First entry title: " + filteredEntries.get(0).getTitle());
-                        System.out.println("[DEBUG] First entry in visibleEntries: " + 
-                            (visibleEntries.isEmpty() ? "empty" : visibleEntries.get(0).getTitle()));
-                    } else {
-                        System.out.println("[DEBUG] No entries to display after filtering");
-                    }
-                    
-                    // Debug: Print ListView properties
-                    System.out.println("\n[DEBUG] ListView properties:");
-                    System.out.println("  Items count: " + entryList.getItems().size());
-                    System.out.println("  Visible row count: " + entryList.getItems().size());
-                    System.out.println("  Fixed cell size: " + entryList.getFixedCellSize());
-                    System.out.println("  Layout bounds: " + entryList.getLayoutBounds());
-                    
-                } catch (Exception e) {
-                    System.err.println("[ERROR] Updating UI: " + e.getMessage());
-                    e.printStackTrace();
-                }
-            });
-            
-        } catch (Exception e) {
-            System.err.println("\n[ERROR] in filterAndShowEntries: " + e.getMessage());
-            e.printStackTrace();
-            
-            // Show error to user
-            Platform.runLater(() -> {
-                showError("Error Loading Entries", "An error occurred while loading diary entries: " + e.getMessage());
-            });
+            backwardLoad = null;
+            loadingBackward = false;
+            if (e != null) {
+                e.printStackTrace();
+                return;
+            }
+            prependPage(hits);
+        });
+    }
+
+    private void appendPage(List<Database.SearchHit> hits) {
+        List<Database.DiaryEntry> newEntries = applyPage(hits);
+        if (newEntries.isEmpty()) {
+            return;
+        }
+        visibleEntries.addAll(newEntries);
+        
+        // Drop rows far above the viewport, keeping the visible rows in place
+        int excess = visibleEntries.size() - MAX_LOADED_ENTRIES;
+        int firstVisible = prefetcher.firstVisibleIndex();
+        if (excess <= 0 || firstVisible < excess) {
+            return;
+        }
+        double offset = prefetcher.firstVisibleOffset();
+        forget(visibleEntries.subList(0, excess));
+        // A page being fetched for above the old first row no longer fits
+        if (backwardLoad != null) {
+            backwardLoad.cancel();
+            backwardLoad = null;
+            loadingBackward = false;
         }
+        startReached = false;
+        prefetcher.restore(firstVisible - excess, offset);
     }
 
-    private void loadMoreEntries() {
-        // Load more entries when scrolling (pagination)
-        final String searchText = searchField.getText().trim().toLowerCase();
-        final boolean searchByDate = dateToggle.isSelected();
-        
-        // Determine the final search text to use
-        final String finalSearchText;
-        if (searchByDate && datePicker.getValue() != null) {
-            finalSearchText = datePicker.getValue().toString();
-        } else {
-            finalSearchText = searchText;
-        }
-        
-        // Get next page of entries
-        List<Database.DiaryEntry> newEntries = Database.getDiaryEntries(PAGE_SIZE, loadedCount);
-        
-        // Filter if searching
-        if (!finalSearchText.isEmpty()) {
-            if (searchByDate) {
-                // Filter by date
-                newEntries = newEntries.stream()
-                    .filter(entry -> entry.getCreatedAt().toLocalDate().toString().equals(finalSearchText))
-                    .collect(Collectors.toList());
-            } else {
-                // Filter by title
-                newEntries = newEntries.stream()
-                    .filter(entry -> entry.getTitle().toLowerCase().contains(finalSearchText))
-                    .collect(Collectors.toList());
-            }
+    private void prependPage(List<Database.SearchHit> hits) {
+        List<Database.DiaryEntry> page = new ArrayList<>();
+        for (Database.SearchHit hit : hits) {
+            page.add(hit.getEntry());
+            remember(hit);
         }
+        startReached = page.size() < PAGE_SIZE;
+        if (page.isEmpty()) {
+            return;
+        }
+        
+        int firstVisible = prefetcher.firstVisibleIndex();
+        double offset = prefetcher.firstVisibleOffset();
+        visibleEntries.addAll(0, page);
         
-        // Add to visible entries if not empty
-        if (!newEntries.isEmpty()) {
-            visibleEntries.addAll(newEntries);
-            loadedCount += newEntries.size();
+        // Drop rows far below the viewport; they are fetched again when scrolled to
+        int excess = visibleEntries.size() - MAX_LOADED_ENTRIES;
+        if (excess > 0) {
+            forget(visibleEntries.subList(visibleEntries.size() - excess, visibleEntries.size()));
+            // A page being fetched for below the old last row no longer fits
+            if (forwardLoad != null) {
+                forwardLoad.cancel();
+                forwardLoad = null;
+                loadingForward = false;
+            }
+            endReached = false;
+            Database.DiaryEntry last = visibleEntries.get(visibleEntries.size() - 1);
+            nextCursor = Database.PageCursor.after(last);
+            nextHit = activeFullTextQuery != null ? hitOf(last) : null;
         }
+        prefetcher.restore(firstVisible + page.size(), offset);
+    }
+
+    // Remove a range of loaded rows along with their snippets
+    private void forget(List<Database.DiaryEntry> dropped) {
+        for (Database.DiaryEntry entry : dropped) {
+            snippets.remove(entry.getId());
+            scores.remove(entry.getId());
+        }
+        dropped.clear();
+    }
+
+    // Capture the active search and the position after the last row fetched so far
+    // as a blocking query for the database executor
+    private Function<QueryHandle, List<Database.SearchHit>> nextPageQuery() {
+        if (activeFullTextQuery != null) {
+            final String text = activeFullTextQuery;
+            final Database.SearchHit after = nextHit;
+            return handle -> Database.fullTextSearch(text, after, PAGE_SIZE, handle);
+        }
+        final Database.SearchQuery query = activeQuery;
+        final Database.PageCursor after = nextCursor;
+        return handle -> {
+            List<Database.SearchHit> hits = new ArrayList<>();
+            for (Database.DiaryEntry entry : Database.searchEntries(query, after, PAGE_SIZE, handle)) {
+                hits.add(new Database.SearchHit(entry, null, 0));
+            }
+            return hits;
+        };
+    }
+
+    // The page of the active search above the first loaded row
+    private Function<QueryHandle, List<Database.SearchHit>> previousPageQuery() {
+        if (activeFullTextQuery != null) {
+            final String text = activeFullTextQuery;
+            final Database.SearchHit before = hitOf(visibleEntries.get(0));
+            return handle -> Database.fullTextSearchBefore(text, before, PAGE_SIZE, handle);
+        }
+        final Database.SearchQuery query = activeQuery;
+        final Database.PageCursor before = Database.PageCursor.after(visibleEntries.get(0));
+        return handle -> {
+            List<Database.SearchHit> hits = new ArrayList<>();
+            for (Database.DiaryEntry entry : Database.searchEntriesBefore(query, before, PAGE_SIZE, handle)) {
+                hits.add(new Database.SearchHit(entry, null, 0));
+            }
+            return hits;
+        };
+    }
+
+    // The next page of the active search if the entry cache already holds it;
+    // full-text results are ranked by the index and never cached
+    private List<Database.SearchHit> cachedPage() {
+        if (activeFullTextQuery != null) {
+            return null;
+        }
+        List<Database.DiaryEntry> entries = Database.findCachedEntries(activeQuery, nextCursor, PAGE_SIZE);
+        if (entries == null) {
+            return null;
+        }
+        List<Database.SearchHit> hits = new ArrayList<>();
+        for (Database.DiaryEntry entry : entries) {
+            hits.add(new Database.SearchHit(entry, null, 0));
+        }
+        return hits;
+    }
+
+    // Advance the paging state past a page of results of the active search
+    private List<Database.DiaryEntry> applyPage(List<Database.SearchHit> hits) {
+        List<Database.DiaryEntry> page = new ArrayList<>();
+        for (Database.SearchHit hit : hits) {
+            page.add(hit.getEntry());
+            remember(hit);
+        }
+        if (!hits.isEmpty()) {
+            nextCursor = Database.PageCursor.after(page.get(page.size() - 1));
+            nextHit = activeFullTextQuery != null ? hits.get(hits.size() - 1) : null;
+        }
+        endReached = page.size() < PAGE_SIZE;
+        return page;
+    }
+
+    // Keep the snippet and paging key of a full-text hit while it is loaded
+    private void remember(Database.SearchHit hit) {
+        if (hit.getSnippet() != null) {
+            snippets.put(hit.getEntry().getId(), hit.getSnippet());
+        }
+        if (activeFullTextQuery != null) {
+            scores.put(hit.getEntry().getId(), hit.getScore());
+        }
+    }
+
+    // The full-text hit of a loaded row, as a paging key
+    private Database.SearchHit hitOf(Database.DiaryEntry entry) {
+        return new Database.SearchHit(entry, null, scores.getOrDefault(entry.getId(), 0.0));
+    }
+
+    /**
+     * Returns the highlighted content excerpt for an entry found by full-text
+     * search, or null if the list is not showing search results.
+     */
+    public String getSnippet(Database.DiaryEntry entry) {
+        return snippets.get(entry.getId());
     }
 
     // TODO: Add methods for search, lazy loading, and entry selection
@@ -0,0 +1,141 @@
+package com.loginapp;
+
+import javafx.application.Platform;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous front for {@link Database}. Every call runs
+ * on a dedicated database executor and the returned future completes on the
+ * JavaFX Application Thread, so controllers can update the UI directly in
+ * {@code thenAccept} / {@code exceptionally} without any JDBC running on the
+ * FX thread.
+ */
+public class DiaryRepository {
+    private static final int THREADS = 4;
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private static final ExecutorService DB_EXECUTOR = Executors.newFixedThreadPool(THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "diary-db-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Runs work on the database executor and delivers its result, or its
+     * failure, back on the JavaFX Application Thread.
+     * @param work The blocking work to run
+     * @return A future completed on the FX thread
+     */
+    public static <T> CompletableFuture<T> submit(Supplier<T> work) {
+        return submitOn(DB_EXECUTOR, work);
+    }
+
+    /**
+     * Runs work on the given executor and delivers its result, or its
+     * failure, back on the JavaFX Application Thread. A rejected submission
+     * fails the returned future with the {@code RejectedExecutionException}.
+     * @param executor The executor to run the work on
+     * @param work The blocking work to run
+     * @return A future completed on the FX thread
+     */
+    public static <T> CompletableFuture<T> submitOn(Executor executor, Supplier<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<T> running;
+        try {
+            running = CompletableFuture.supplyAsync(work, executor);
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        running.whenComplete((value, error) ->
+            Platform.runLater(() -> {
+                if (error != null) {
+                    result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                                                 ? error.getCause() : error);
+                } else {
+                    result.complete(value);
+                }
+            }));
+        return result;
+    }
+
+    public static CompletableFuture<List<Database.DiaryEntry>> searchEntries(Database.SearchQuery query,
+                                                                             Database.PageCursor after, int limit) {
+        return submit(() -> Database.searchEntries(query, after, limit));
+    }
+
+    public static CompletableFuture<List<Database.SearchHit>> fullTextSearch(String text, Database.SearchHit after,
+                                                                           int limit) {
+        return submit(() -> Database.fullTextSearch(text, after, limit));
+    }
+
+    public static CompletableFuture<Map<LocalDate, Integer>> getEntryCountsForMonth(YearMonth month) {
+        return submit(() -> Database.getEntryCountsForMonth(month));
+    }
+
+    public static CompletableFuture<String> getEntryContent(int id) {
+        return submit(() -> Database.getEntryContent(id));
+    }
+
+    /**
+     * @return A future with the id of the new entry; it fails if the entry
+     *         could not be saved
+     */
+    public static CompletableFuture<Integer> addDiaryEntry(String title, String content, LocalDateTime timestamp) {
+        return submit(() -> {
+            int id = Database.addDiaryEntry(title, content, timestamp);
+            if (id < 0) {
+                throw new IllegalStateException("The entry could not be saved");
+            }
+            return id;
+        });
+    }
+
+    /**
+     * @return A future that fails if the entry could not be saved
+     */
+    public static CompletableFuture<Void> updateDiaryEntry(int id, String title, String content, LocalDateTime timestamp) {
+        return submit(() -> {
+            int updated = Database.updateDiaryEntry(id, title, content, timestamp);
+            if (updated == 0) {
+                throw new IllegalStateException("The entry no longer exists");
+            }
+            if (updated < 0) {
+                throw new IllegalStateException("The entry could not be saved");
+            }
+            return null;
+        });
+    }
+
+    public static CompletableFuture<Void> deleteDiaryEntry(int id) {
+        return submit(() -> {
+            Database.deleteDiaryEntry(id);
+            return null;
+        });
+    }
+
+    public static CompletableFuture<Integer> deleteDiaryEntries(Collection<Integer> ids) {
+        return submit(() -> Database.deleteDiaryEntries(ids));
+    }
+
+    /**
+     * Stops accepting new work. Queued work still runs to completion.
+     */
+    public static void shutdown() {
+        DB_EXECUTOR.shutdown();
+    }
+}
@@ -0,0 +1,383 @@
+package com.loginapp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps unsaved editor contents in an append-only file, drafts.journal or
+ * the file the {@code diary.drafts} system property names, so a crash loses at most the last few seconds of typing. Each record is its
+ * length, a CRC32 of its body and the body; a torn record at the end, left by
+ * a crash during a write, fails the check and is cut off when the journal is
+ * next opened. A draft is a snapshot of one editor session, saved again as
+ * the user types and ended once the entry is saved or the edit abandoned.
+ * Drafts that were never ended are found by {@link #pendingDrafts} on the
+ * next login and folded into diary_entries by {@link #restore}. All file I/O
+ * runs on one background thread, in submission order.
+ */
+public class DraftJournal {
+    private static final String JOURNAL_FILE = System.getProperty("diary.drafts", "drafts.journal");
+    private static final byte SAVE = 1;
+    private static final byte END = 2;
+    // Rewrite the journal with only the open drafts once it grows past this
+    private static final long COMPACT_SIZE = 4L * 1024 * 1024;
+
+    private static final ExecutorService IO_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "draft-journal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Only touched on the journal thread
+    private static final Map<String, Draft> open = new LinkedHashMap<>();
+    private static FileChannel channel = null;
+
+    /**
+     * One snapshot of an entry being edited.
+     */
+    public static class Draft {
+        private final String draftId;
+        private final int userId;
+        private final int entryId;
+        private final long savedAt;
+        private final String title;
+        private final String content;
+
+        /**
+         * @param draftId Identifies the editor session
+         * @param entryId The entry being edited, or -1 for a new entry
+         */
+        public Draft(String draftId, int userId, int entryId, long savedAt, String title, String content) {
+            this.draftId = draftId;
+            this.userId = userId;
+            this.entryId = entryId;
+            this.savedAt = savedAt;
+            this.title = title;
+            this.content = content;
+        }
+
+        public String getDraftId() { return draftId; }
+        public int getUserId() { return userId; }
+        public int getEntryId() { return entryId; }
+        public long getSavedAt() { return savedAt; }
+        public String getTitle() { return title; }
+        public String getContent() { return content; }
+    }
+
+    /**
+     * Appends a snapshot of a draft, replacing its previous one. Returns at
+     * once; the write happens on the journal thread.
+     */
+    public static void save(Draft draft) {
+        IO_EXECUTOR.execute(() -> {
+            try {
+                ensureOpen();
+                append(encodeSave(draft));
+                open.put(draft.draftId, draft);
+                if (channel.size() > COMPACT_SIZE) {
+                    compact();
+                }
+            } catch (IOException e) {
+                System.err.println("Could not write draft " + draft.draftId + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Ends a draft after its entry was saved or the edit was abandoned, so it
+     * is not restored again. Returns at once.
+     */
+    public static void end(String draftId) {
+        IO_EXECUTOR.execute(() -> {
+            try {
+                ensureOpen();
+                if (open.remove(draftId) == null) {
+                    return;
+                }
+                append(encodeEnd(draftId));
+                // Nothing left to recover, so start the file over
+                if (open.isEmpty()) {
+                    channel.truncate(0);
+                }
+            } catch (IOException e) {
+                System.err.println("Could not end draft " + draftId + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * @return The drafts of the user left open by an earlier session,
+     *         completed on the FX thread
+     */
+    public static CompletableFuture<List<Draft>> pendingDrafts(int userId) {
+        return DiaryRepository.submitOn(IO_EXECUTOR, () -> readPending(userId));
+    }
+
+    /**
+     * Same as {@link #pendingDrafts}, but waits for the journal thread
+     * instead of completing on the FX thread.
+     */
+    static List<Draft> pendingDraftsNow(int userId) {
+        return CompletableFuture.supplyAsync(() -> readPending(userId), IO_EXECUTOR).join();
+    }
+
+    private static List<Draft> readPending(int userId) {
+        List<Draft> drafts = new ArrayList<>();
+        try {
+            ensureOpen();
+        } catch (IOException e) {
+            System.err.println("Could not read " + JOURNAL_FILE + ": " + e.getMessage());
+            return drafts;
+        }
+        for (Draft draft : open.values()) {
+            if (draft.userId == userId) {
+                drafts.add(draft);
+            }
+        }
+        return drafts;
+    }
+
+    /**
+     * Folds drafts into diary_entries, each as an edit of its entry or, if
+     * that entry is gone, as a new entry. A draft is only ended once its
+     * entry was written; one that could not be saved, including an edit whose
+     * update failed rather than found no entry, stays in the journal and is
+     * offered again. Runs on the database executor.
+     * @return The number of drafts restored, completed on the FX thread
+     */
+    public static CompletableFuture<Integer> restore(List<Draft> drafts) {
+        return DiaryRepository.submit(() -> restoreNow(drafts));
+    }
+
+    /**
+     * Same as {@link #restore}, but runs on the calling thread.
+     * @return The number of drafts restored
+     */
+    static int restoreNow(List<Draft> drafts) {
+        int restored = 0;
+        for (Draft draft : drafts) {
+            LocalDateTime savedAt = Database.fromEpochMillis(draft.savedAt);
+            int updated = draft.entryId > 0
+                          ? Database.updateDiaryEntry(draft.entryId, draft.title, draft.content, savedAt)
+                          : 0;
+            boolean saved = updated > 0;
+            if (updated == 0) {
+                // The entry was deleted, or the draft was for a new one
+                saved = Database.addDiaryEntry(draft.title, draft.content, savedAt) > 0;
+            }
+            if (saved) {
+                end(draft.draftId);
+                restored++;
+            } else {
+                System.err.println("Could not restore draft " + draft.draftId + "; it is kept for next time");
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * Closes the journal and forgets the drafts read from it, so the next
+     * use reads the file again as after a restart. Waits for queued writes.
+     */
+    static void reload() {
+        CompletableFuture.runAsync(() -> {
+            try {
+                if (channel != null) {
+                    channel.close();
+                    channel = null;
+                }
+            } catch (IOException e) {
+                System.err.println("Could not close " + JOURNAL_FILE + ": " + e.getMessage());
+            }
+            open.clear();
+        }, IO_EXECUTOR).join();
+    }
+
+    /**
+     * Writes out every queued draft and closes the journal. Called on exit.
+     */
+    public static void shutdown() {
+        IO_EXECUTOR.execute(() -> {
+            try {
+                if (channel != null) {
+                    channel.force(false);
+                    channel.close();
+                    channel = null;
+                }
+            } catch (IOException e) {
+                System.err.println("Could not close " + JOURNAL_FILE + ": " + e.getMessage());
+            }
+        });
+        IO_EXECUTOR.shutdown();
+        try {
+            IO_EXECUTOR.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Opens the journal and reads the open drafts from it on first use
+    private static void ensureOpen() throws IOException {
+        if (channel != null) {
+            return;
+        }
+        Path path = Paths.get(JOURNAL_FILE);
+        FileChannel opened = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                              StandardOpenOption.WRITE);
+        long validLength = replay(opened);
+        if (validLength < opened.size()) {
+            System.err.println("Cut a damaged record off the end of " + JOURNAL_FILE);
+            opened.truncate(validLength);
+        }
+        opened.position(validLength);
+        channel = opened;
+    }
+
+    // Reads records until the end or the first damaged one; returns where the valid records end
+    private static long replay(FileChannel in) throws IOException {
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + Long.BYTES);
+        while (true) {
+            header.clear();
+            if (readFully(in, header, position) < header.capacity()) {
+                return position;
+            }
+            header.flip();
+            int length = header.getInt();
+            long crc = header.getLong();
+            if (length <= 0 || position + header.capacity() + length > in.size()) {
+                return position;
+            }
+            ByteBuffer body = ByteBuffer.allocate(length);
+            readFully(in, body, position + header.capacity());
+            if (checksum(body.array()) != crc) {
+                return position;
+            }
+            try {
+                apply(body.array());
+            } catch (EOFException e) {
+                return position;
+            }
+            position += header.capacity() + length;
+        }
+    }
+
+    private static int readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = in.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static void apply(byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        byte type = in.readByte();
+        String draftId = in.readUTF();
+        if (type == END) {
+            open.remove(draftId);
+            return;
+        }
+        int userId = in.readInt();
+        int entryId = in.readInt();
+        long savedAt = in.readLong();
+        String title = readText(in);
+        String content = readText(in);
+        open.put(draftId, new Draft(draftId, userId, entryId, savedAt, title, content));
+    }
+
+    // Keeps only the latest snapshot of each open draft
+    private static void compact() throws IOException {
+        Path path = Paths.get(JOURNAL_FILE);
+        Path temp = Paths.get(JOURNAL_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Draft draft : open.values()) {
+                write(out, encodeSave(draft));
+            }
+            out.force(false);
+        }
+        channel.close();
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+    }
+
+    private static void append(byte[] body) throws IOException {
+        write(channel, body);
+        channel.force(false);
+    }
+
+    private static void write(FileChannel out, byte[] body) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + Long.BYTES + body.length);
+        record.putInt(body.length).putLong(checksum(body)).put(body).flip();
+        while (record.hasRemaining()) {
+            out.write(record);
+        }
+    }
+
+    private static byte[] encodeSave(Draft draft) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + draft.content.length());
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(SAVE);
+        out.writeUTF(draft.draftId);
+        out.writeInt(draft.userId);
+        out.writeInt(draft.entryId);
+        out.writeLong(draft.savedAt);
+        writeText(out, draft.title);
+        writeText(out, draft.content);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeEnd(String draftId) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(END);
+        out.writeUTF(draftId);
+        return bytes.toByteArray();
+    }
+
+    // writeUTF is limited to 64 KB, entries are not
+    private static void writeText(DataOutputStream out, String text) throws IOException {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readText(DataInputStream in) throws IOException {
+        byte[] utf8 = new byte[in.readInt()];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static long checksum(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return crc.getValue();
+    }
+}
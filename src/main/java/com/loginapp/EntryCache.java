@@ -0,0 +1,224 @@
+package com.loginapp;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory copy of the logged-in user's newest entry summaries, kept across
+ * scene switches so returning to the list does not query the database again.
+ * The cache holds a contiguous newest-first prefix of the user's entries: any
+ * {@link Database.SearchQuery} page that lies entirely within the prefix is
+ * answered from memory. {@link Database} fills the prefix as the list is paged
+ * and updates it write-through on every add, update and delete, so it never
+ * has to be thrown away. At most {@link #MAX_ENTRIES} summaries are kept; the
+ * oldest are evicted first.
+ */
+public class EntryCache {
+    private static final int MAX_ENTRIES = 5000;
+
+    private static int ownerId = -1;
+    // Newest first, ordered like the list query: created_at DESC, id DESC
+    private static final List<Database.DiaryEntry> prefix = new ArrayList<>();
+    // True once the prefix holds every entry of the owner
+    private static boolean complete = false;
+    // Bumped by every write, so a fill read before the write is not applied after it
+    private static long version = 0;
+
+    /**
+     * Answers a page of a search from the cached prefix.
+     * @param userId The user the page is for
+     * @param query The title and date filters
+     * @param after The last entry of the previous page, or null for the first page
+     * @param limit The maximum number of entries to return
+     * @return The page, or null if the prefix does not cover it
+     */
+    public static synchronized List<Database.DiaryEntry> find(int userId, Database.SearchQuery query,
+                                                            Database.PageCursor after, int limit) {
+        if (userId != ownerId) {
+            return null;
+        }
+        LocalDateTime from = query.getFrom() != null ? query.getFrom().atStartOfDay() : null;
+        LocalDateTime to = query.getTo() != null ? query.getTo().plusDays(1).atStartOfDay() : null;
+
+        List<Database.DiaryEntry> page = new ArrayList<>();
+        for (Database.DiaryEntry entry : prefix) {
+            if (page.size() == limit) {
+                return page;
+            }
+            if (after != null && !isBefore(entry, after)) {
+                continue;
+            }
+            if (from != null && entry.getCreatedAt().isBefore(from)) {
+                // Everything further down is older still
+                return page;
+            }
+            if (to != null && !entry.getCreatedAt().isBefore(to)) {
+                continue;
+            }
+            if (query.getTitleContains() != null && !titleMatches(entry.getTitle(), query.getTitleContains())) {
+                continue;
+            }
+            page.add(entry);
+        }
+        return page.size() == limit || complete ? page : null;
+    }
+
+    /**
+     * @return The position after the last cached entry of the user, or null
+     *         if the prefix is empty; the next fill starts there
+     */
+    public static synchronized Database.PageCursor fillCursor(int userId) {
+        if (userId != ownerId || prefix.isEmpty()) {
+            return null;
+        }
+        return Database.PageCursor.after(prefix.get(prefix.size() - 1));
+    }
+
+    /**
+     * @return True if the prefix of the user can still grow
+     */
+    public static synchronized boolean canFill(int userId) {
+        if (userId != ownerId) {
+            return true;
+        }
+        return !complete && prefix.size() < MAX_ENTRIES;
+    }
+
+    /**
+     * @return The current write version; pass it to {@link #append} with
+     *         entries read after this call
+     */
+    public static synchronized long version() {
+        return version;
+    }
+
+    /**
+     * Appends the page of the unfiltered listing that follows the prefix. The
+     * page is dropped if the cache was written to since {@code readVersion},
+     * or if it no longer continues the prefix.
+     * @param userId The user the page belongs to
+     * @param readVersion The {@link #version()} taken before the page was read
+     * @param after The cursor the page was read after, or null for the first page
+     * @param page The entries read
+     * @param endReached True if the page was the last one
+     */
+    public static synchronized void append(int userId, long readVersion, Database.PageCursor after,
+                                           List<Database.DiaryEntry> page, boolean endReached) {
+        if (readVersion != version) {
+            return;
+        }
+        if (userId != ownerId) {
+            if (after != null) {
+                return;
+            }
+            reset(userId);
+        }
+        Database.PageCursor end = prefix.isEmpty() ? null : Database.PageCursor.after(prefix.get(prefix.size() - 1));
+        if (!sameCursor(end, after)) {
+            return;
+        }
+        prefix.addAll(page);
+        complete = endReached;
+        trim();
+    }
+
+    /**
+     * Adds a newly created entry, if it falls within the cached prefix.
+     */
+    public static synchronized void added(int userId, Database.DiaryEntry entry) {
+        version++;
+        if (userId != ownerId) {
+            return;
+        }
+        int index = 0;
+        while (index < prefix.size() && isBefore(entry, Database.PageCursor.after(prefix.get(index)))) {
+            index++;
+        }
+        if (index == prefix.size() && !complete) {
+            // Older than everything cached; it belongs to the part not loaded yet
+            return;
+        }
+        prefix.add(index, entry);
+        trim();
+    }
+
+    /**
+     * Replaces the title of a cached entry after it was edited.
+     */
+    public static synchronized void updated(int userId, int entryId, String title) {
+        version++;
+        if (userId != ownerId) {
+            return;
+        }
+        for (int i = 0; i < prefix.size(); i++) {
+            Database.DiaryEntry entry = prefix.get(i);
+            if (entry.getId() == entryId) {
+                prefix.set(i, new Database.DiaryEntry(entry.getId(), entry.getUserId(), title, null,
+                                                      entry.getCreatedAt()));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes deleted entries from the cache.
+     */
+    public static synchronized void removed(int userId, Iterable<Integer> entryIds) {
+        version++;
+        if (userId != ownerId) {
+            return;
+        }
+        for (int entryId : entryIds) {
+            prefix.removeIf(entry -> entry.getId() == entryId);
+        }
+    }
+
+    /**
+     * Drops every cached summary, e.g. when the user logs out.
+     */
+    public static synchronized void clear() {
+        version++;
+        reset(-1);
+    }
+
+    private static void reset(int userId) {
+        ownerId = userId;
+        prefix.clear();
+        complete = false;
+    }
+
+    private static void trim() {
+        if (prefix.size() > MAX_ENTRIES) {
+            prefix.subList(MAX_ENTRIES, prefix.size()).clear();
+            complete = false;
+        }
+    }
+
+    // True if the entry sorts after the cursor in the newest-first listing
+    private static boolean isBefore(Database.DiaryEntry entry, Database.PageCursor cursor) {
+        int byTime = entry.getCreatedAt().compareTo(cursor.getCreatedAt());
+        return byTime < 0 || (byTime == 0 && entry.getId() < cursor.getId());
+    }
+
+    private static boolean sameCursor(Database.PageCursor a, Database.PageCursor b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.getId() == b.getId() && a.getCreatedAt().equals(b.getCreatedAt());
+    }
+
+    // Mirrors SQLite's LIKE, which ignores case for ASCII letters only
+    private static boolean titleMatches(String title, String needle) {
+        return asciiLowerCase(title).contains(asciiLowerCase(needle));
+    }
+
+    private static String asciiLowerCase(String text) {
+        StringBuilder lower = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            lower.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+        }
+        return lower.toString();
+    }
+}
@@ -4,8 +4,9 @@ import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.application.Platform;
+import java.util.concurrent.RejectedExecutionException;
 
-public class LoginController {
+public class LoginController implements ReusableView {
     @FXML private VBox loginBox;
     @FXML private VBox signupBox;
     @FXML private TextField usernameField;
@@ -13,19 +14,49 @@ public class LoginController {
     @FXML private TextField signupUsernameField;
     @FXML private PasswordField signupPasswordField;
     @FXML private Button topRightSignupButton;
+    @FXML private Button loginButton;
+    @FXML private Button signupSubmitButton;
+    @FXML private ProgressIndicator loginProgress;
+    @FXML private ProgressIndicator signupProgress;
+    
+    // Only one authentication attempt at a time from this window
+    private boolean authInFlight = false;
+
+    /**
+     * Shown at startup and again after logout; never keep the previous
+     * user's credentials in the reused form.
+     */
+    @Override
+    public void onViewShown() {
+        for (TextField field : new TextField[] { usernameField, passwordField, signupUsernameField, signupPasswordField }) {
+            if (field != null) {
+                field.clear();
+            }
+        }
+        showLoginForm();
+    }
 
     @FXML
     private void handleLogin() {
-        if (UserDAO.login(usernameField.getText(), passwordField.getText())) {
-            try {
-                Main.setRoot("DiaryMain.fxml");
-            } catch (Exception e) {
-                e.printStackTrace();
-                showAlert("Failed to load Diary Main view.");
-            }
-        } else {
-            showAlert("Invalid credentials");
+        if (authInFlight) {
+            return;
         }
+        setBusy(true);
+        AuthService.login(usernameField.getText(), passwordField.getText()).thenAccept(success -> {
+            setBusy(false);
+            if (success) {
+                try {
+                    Main.setRoot("DiaryMain.fxml");
+                    // Opening an entry is the next step, so have its view ready
+                    Main.preload("DiaryEntry.fxml");
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    showAlert("Failed to load Diary Main view.");
+                }
+            } else {
+                showAlert("Invalid credentials");
+            }
+        }).exceptionally(this::handleAuthFailure);
     }
 
     @FXML
@@ -59,22 +90,56 @@ public class LoginController {
             return;
         }
         
-        if (UserDAO.signup(username, password)) {
-            Alert alert = new Alert(Alert.AlertType.INFORMATION);
-            alert.setContentText("Sign up successful!");
-            alert.show();
-            new Thread(() -> {
-                try { Thread.sleep(1500); } catch (InterruptedException ignored) {}
-                Platform.runLater(() -> {
-                    alert.close();
-                    showLoginForm();
-                });
-            }).start();
+        if (authInFlight) {
+            return;
+        }
+        setBusy(true);
+        AuthService.signup(username, password).thenAccept(success -> {
+            setBusy(false);
+            if (success) {
+                Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                alert.setContentText("Sign up successful!");
+                alert.show();
+                new Thread(() -> {
+                    try { Thread.sleep(1500); } catch (InterruptedException ignored) {}
+                    Platform.runLater(() -> {
+                        alert.close();
+                        showLoginForm();
+                    });
+                }).start();
+            } else {
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setContentText("Sign up failed (maybe username exists)");
+                alert.showAndWait();
+            }
+        }).exceptionally(this::handleAuthFailure);
+    }
+
+    // Show progress and block further attempts while one is running
+    private void setBusy(boolean busy) {
+        authInFlight = busy;
+        for (Button button : new Button[] { loginButton, signupSubmitButton }) {
+            if (button != null) {
+                button.setDisable(busy);
+            }
+        }
+        for (ProgressIndicator progress : new ProgressIndicator[] { loginProgress, signupProgress }) {
+            if (progress != null) {
+                progress.setVisible(busy);
+                progress.setManaged(busy);
+            }
+        }
+    }
+
+    private Void handleAuthFailure(Throwable error) {
+        setBusy(false);
+        if (error instanceof RejectedExecutionException) {
+            showAlert("Busy", "Too many sign-in attempts are running. Please try again in a moment.");
         } else {
-            Alert alert = new Alert(Alert.AlertType.ERROR);
-            alert.setContentText("Sign up failed (maybe username exists)");
-            alert.showAndWait();
+            error.printStackTrace();
+            showAlert("Error", "Authentication failed: " + error.getMessage());
         }
+        return null;
     }
 
     @FXML
@@ -1,19 +1,33 @@
 package com.loginapp;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 public class Main extends Application {
     private static Stage primaryStage;
+    private static Scene scene;
+    
+    // Views are loaded once and reused; only touched on the FX thread
+    private static final Map<String, View> views = new HashMap<>();
+    // FXML files being read for a preload, by name; also only touched on the FX thread
+    private static final Map<String, CompletableFuture<byte[]>> preloading = new HashMap<>();
 
     @Override
     public void start(Stage stage) throws Exception {
-        // Initialize the database
-        Database.init();
-        
+        Bootstrap.mark("javafx started");
         primaryStage = stage;
         
         // Set minimum window size
@@ -27,39 +41,131 @@ public class Main extends Application {
         // Center the window on the screen
         stage.centerOnScreen();
         
-        FXMLLoader loader = new FXMLLoader(getClass().getResource("Login.fxml"));
-        Scene scene = new Scene(loader.load());
+        // One scene for the whole session; navigation swaps its root
+        View login = view("Login.fxml");
+        scene = new Scene(login.root);
+        Bootstrap.mark("login view loaded");
         stage.setTitle("Login App");
         stage.setScene(scene);
         stage.show();
-    }
-
-    public static void setRoot(String fxml) throws Exception {
-        // Save current window dimensions and position
-        boolean wasMaximized = primaryStage.isMaximized();
+        login.shown();
         
-        // Load the new scene
-        FXMLLoader loader = new FXMLLoader(Main.class.getResource(fxml));
-        Parent root = loader.load();
-        Scene scene = new Scene(root);
+        // The first layout pulse of the shown window is right before it is
+        // drawn; background maintenance waits until then
+        scene.addPostLayoutPulseListener(new Runnable() {
+            @Override
+            public void run() {
+                Bootstrap.firstPaint();
+                Platform.runLater(() -> scene.removePostLayoutPulseListener(this));
+            }
+        });
         
-        // Set minimum size for the new scene
-        primaryStage.setMinWidth(1000);
-        primaryStage.setMinHeight(750);
+        // The diary list is next after login, so build it while the user types
+        preload("DiaryMain.fxml");
+    }
+
+    @Override
+    public void stop() {
+        // Close pooled database connections so the WAL is checkpointed on exit
+        AuthService.shutdown();
+        // Write out the last autosaved draft before the database goes away
+        DraftJournal.shutdown();
+        DiaryRepository.shutdown();
+        ConnectionManager.shutdown();
         
-        // If not maximized, set explicit size
-        if (!wasMaximized) {
-            primaryStage.setWidth(1000);
-            primaryStage.setHeight(750);
-            primaryStage.centerOnScreen();
+        // Print where database time went during this run
+        if (QueryMetrics.hasData()) {
+            QueryMetrics.dump(System.out);
         }
-        
-        primaryStage.setScene(scene);
-        
-        // Restore maximized state if needed
-        if (wasMaximized) {
-            primaryStage.setMaximized(true);
+    }
+
+    /**
+     * Shows a view in the main window. Each FXML file is loaded once; later
+     * calls reuse its node graph and controller, so switching views only
+     * swaps the scene root. A view still being preloaded is built from the
+     * preloaded file rather than read a second time. Controllers implementing {@link ReusableView} are
+     * told every time their view is shown.
+     * @param fxml The FXML file name, relative to this class
+     */
+    public static void setRoot(String fxml) throws Exception {
+        View view = view(fxml);
+        if (scene.getRoot() != view.root) {
+            scene.setRoot(view.root);
+        }
+        view.shown();
+    }
+
+    /**
+     * Prepares a view so a later {@link #setRoot} finds it ready. The FXML
+     * file is read on a background thread; the nodes and controller are then
+     * built on the FX thread once it is idle, since FXMLLoader and controller
+     * initialization must not run anywhere else. Does nothing if the view is
+     * already loaded or being preloaded. Must be called on the FX thread.
+     * @param fxml The FXML file name, relative to this class
+     */
+    public static void preload(String fxml) {
+        if (views.containsKey(fxml) || preloading.containsKey(fxml)) {
+            return;
         }
+        CompletableFuture<byte[]> read = CompletableFuture.supplyAsync(() -> {
+            try (InputStream in = Main.class.getResourceAsStream(fxml)) {
+                if (in == null) {
+                    throw new IOException("No such view: " + fxml);
+                }
+                return in.readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, Main::startPreloadThread);
+        preloading.put(fxml, read);
+        read.whenComplete((bytes, error) -> Platform.runLater(() -> {
+            // setRoot may have built it from the same bytes in the meantime
+            if (preloading.remove(fxml) == null || views.containsKey(fxml)) {
+                return;
+            }
+            if (error != null) {
+                System.err.println("Preloading " + fxml + " failed: " + error.getMessage());
+                return;
+            }
+            try {
+                views.put(fxml, load(fxml, bytes));
+            } catch (IOException e) {
+                System.err.println("Preloading " + fxml + " failed: " + e.getMessage());
+            }
+        }));
+    }
+
+    private static View view(String fxml) throws IOException {
+        View view = views.get(fxml);
+        if (view != null) {
+            return view;
+        }
+        CompletableFuture<byte[]> read = preloading.remove(fxml);
+        byte[] bytes = null;
+        if (read != null) {
+            // Reading a few KB is nearly done by now; wait rather than read it again
+            try {
+                bytes = read.join();
+            } catch (CompletionException e) {
+                System.err.println("Preloading " + fxml + " failed: " + e.getCause().getMessage());
+            }
+        }
+        view = load(fxml, bytes);
+        views.put(fxml, view);
+        return view;
+    }
+
+    // Builds a view on the FX thread, from already read FXML bytes if given
+    private static View load(String fxml, byte[] bytes) throws IOException {
+        FXMLLoader loader = new FXMLLoader(Main.class.getResource(fxml));
+        Parent root = bytes != null ? loader.load(new ByteArrayInputStream(bytes)) : loader.load();
+        return new View(root, loader.getController());
+    }
+
+    private static void startPreloadThread(Runnable work) {
+        Thread thread = new Thread(work, "view-preload");
+        thread.setDaemon(true);
+        thread.start();
     }
 
     public static Stage getPrimaryStage() {
@@ -67,13 +173,30 @@ public class Main extends Application {
     }
 
     public static void main(String[] args) {
-        // Initialize database and run migrations
-        Database.init();
-        
-        // Run password migration (safe to run multiple times)
-        new Thread(PasswordMigration::migratePasswords).start();
+        // Upgrade the schema and load settings while JavaFX starts;
+        // maintenance starts once the login window is painted
+        Bootstrap.initialize();
         
         // Launch the application
         launch(args);
     }
+
+    /**
+     * A loaded FXML root together with its controller.
+     */
+    private static class View {
+        private final Parent root;
+        private final Object controller;
+
+        View(Parent root, Object controller) {
+            this.root = root;
+            this.controller = controller;
+        }
+
+        void shown() {
+            if (controller instanceof ReusableView) {
+                ((ReusableView) controller).onViewShown();
+            }
+        }
+    }
 }
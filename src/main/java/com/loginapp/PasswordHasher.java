@@ -4,10 +4,109 @@ import org.mindrot.jbcrypt.BCrypt;
 
 /**
  * Utility class for password hashing and verification using BCrypt.
+ * The workload is calibrated once per machine so that one hash takes about
+ * the configured target time, and the chosen cost is stored in app_settings
+ * and reused on later launches.
  */
 public class PasswordHasher {
-    // Define the workload for the BCrypt hashing (4-31, default is 10)
-    private static final int WORKLOAD = 12;
+    // Workload used until calibration has run (4-31, BCrypt's default is 10)
+    private static final int DEFAULT_WORKLOAD = 12;
+    private static final int MIN_WORKLOAD = 10;
+    private static final int MAX_WORKLOAD = 16;
+    // Cheap cost used to measure this machine's hashing speed
+    private static final int PROBE_WORKLOAD = 8;
+    private static final int PROBE_ROUNDS = 3;
+    private static final long TARGET_MILLIS = Long.getLong("diary.bcrypt.targetMs", 250);
+    private static final String WORKLOAD_KEY = "bcrypt.cost";
+
+    private static volatile int workload = DEFAULT_WORKLOAD;
+
+    /**
+     * @return The BCrypt cost new hashes are created with
+     */
+    public static int getWorkload() {
+        return workload;
+    }
+
+    /**
+     * Loads the cost chosen by an earlier calibration, if there is one.
+     */
+    public static void loadStoredWorkload() {
+        String stored = Database.getSetting(WORKLOAD_KEY);
+        if (stored != null) {
+            try {
+                workload = clamp(Integer.parseInt(stored));
+            } catch (NumberFormatException e) {
+                System.err.println("Ignoring invalid stored BCrypt cost: " + stored);
+            }
+        }
+    }
+
+    /**
+     * Calibrates the cost unless an earlier launch already stored one, so the
+     * cost does not drift with the timing noise of each run.
+     * @return The cost now in use
+     */
+    public static int calibrateIfNeeded() {
+        String stored = Database.getSetting(WORKLOAD_KEY);
+        if (stored != null) {
+            try {
+                workload = clamp(Integer.parseInt(stored));
+                return workload;
+            } catch (NumberFormatException e) {
+                System.err.println("Ignoring invalid stored BCrypt cost: " + stored);
+            }
+        }
+        return calibrate();
+    }
+
+    /**
+     * Measures how long a hash takes on this machine, picks the highest cost
+     * whose hash still fits the latency target (system property
+     * {@code diary.bcrypt.targetMs}, 250 ms by default), and stores it.
+     * Each cost step doubles the work, so the time at a cheap probe cost is
+     * enough to extrapolate.
+     * @return The cost now in use
+     */
+    public static int calibrate() {
+        long bestNanos = Long.MAX_VALUE;
+        for (int i = 0; i < PROBE_ROUNDS; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration-probe", BCrypt.gensalt(PROBE_WORKLOAD));
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+
+        long targetNanos = TARGET_MILLIS * 1_000_000;
+        int cost = PROBE_WORKLOAD;
+        while (cost < MAX_WORKLOAD && bestNanos * (1L << (cost + 1 - PROBE_WORKLOAD)) <= targetNanos) {
+            cost++;
+        }
+        workload = clamp(cost);
+        Database.putSetting(WORKLOAD_KEY, Integer.toString(workload));
+        return workload;
+    }
+
+    /**
+     * Checks whether a stored hash was created with a lower cost than the
+     * current one and should be replaced after the next successful login.
+     * Hashes with a higher cost are kept; they are only slower to check.
+     * @param hashedPassword The stored BCrypt hash
+     * @return true if the hash should be recomputed
+     */
+    public static boolean needsRehash(String hashedPassword) {
+        if (!isHashed(hashedPassword) || hashedPassword.length() < 7) {
+            return false;
+        }
+        try {
+            return Integer.parseInt(hashedPassword.substring(4, 6)) < workload;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static int clamp(int cost) {
+        return Math.max(MIN_WORKLOAD, Math.min(MAX_WORKLOAD, cost));
+    }
 
     /**
      * Hashes a password using BCrypt.
@@ -18,10 +117,20 @@ public class PasswordHasher {
         if (password == null || password.isEmpty()) {
             throw new IllegalArgumentException("Password cannot be empty");
         }
-        String salt = BCrypt.gensalt(WORKLOAD);
+        String salt = BCrypt.gensalt(workload);
         return BCrypt.hashpw(password, salt);
     }
 
+    /**
+     * Checks whether a stored password is already a BCrypt hash.
+     * @param storedPassword The value from the password column
+     * @return true if it has a BCrypt prefix ($2a$, $2b$ or $2y$)
+     */
+    public static boolean isHashed(String storedPassword) {
+        return storedPassword != null && storedPassword.length() > 4
+            && storedPassword.startsWith("$2") && storedPassword.charAt(3) == '$';
+    }
+
     /**
      * Verifies a password against a hashed password.
      * @param password The plain text password to verify
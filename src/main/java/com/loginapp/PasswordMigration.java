@@ -1,63 +1,136 @@
 package com.loginapp;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 /**
  * Utility class for migrating existing plaintext passwords to hashed passwords.
- * This should be run once after deploying the password hashing update.
+ * Users are processed in id order, one chunk at a time: the chunk's plaintext
+ * passwords are hashed in parallel on a fork-join pool, then written with a
+ * batched UPDATE in a single transaction together with the last migrated id.
+ * No pooled connection is held while a chunk is hashed, so logins and list
+ * queries are not kept waiting for one.
+ * An interrupted migration therefore resumes after the last committed chunk,
+ * and once every row is migrated a flag in app_settings skips the scan entirely.
  */
 public class PasswordMigration {
-    
+    private static final int CHUNK_SIZE = 256;
+    private static final String LAST_ID_KEY = "password_migration.last_id";
+    private static final String COMPLETE_KEY = "password_migration.complete";
+
     /**
      * Migrates all plaintext passwords in the database to hashed passwords.
-     * This is a one-time operation that should be run after deploying the password hashing update.
+     * Safe to run repeatedly: it resumes where a previous run stopped and does
+     * nothing once the migration has completed.
      */
     public static void migratePasswords() {
-        String selectSql = "SELECT id, username, password FROM users";
-        String updateSql = "UPDATE users SET password = ? WHERE id = ?";
-        
-        try (Connection conn = Database.getConnection();
-             Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
-             ResultSet rs = stmt.executeQuery(selectSql)) {
-            
-            conn.setAutoCommit(false);
-            int updatedCount = 0;
-            
-            while (rs.next()) {
-                String password = rs.getString("password");
-                
-                // Skip if already hashed (BCrypt hashes start with $2a$)
-                if (password.startsWith("$2a$")) {
-                    continue;
+        if ("true".equals(Database.getSetting(COMPLETE_KEY))) {
+            return;
+        }
+
+        String selectSql = "SELECT id, password FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        // Only replace a password that is still the plaintext that was hashed
+        String updateSql = "UPDATE users SET password = ? WHERE id = ? AND password = ?";
+        ForkJoinPool hashPool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+        long started = System.nanoTime();
+        int scannedCount = 0;
+        int updatedCount = 0;
+
+        try {
+            String lastIdSetting = Database.getSetting(LAST_ID_KEY);
+            int lastId = lastIdSetting != null ? Integer.parseInt(lastIdSetting) : 0;
+
+            while (true) {
+                // Read the next chunk of users after the last committed one
+                List<Integer> ids = new ArrayList<>();
+                List<String> plaintext = new ArrayList<>();
+                int chunkRows = 0;
+                int chunkLastId = lastId;
+                try (Connection conn = Database.getConnection();
+                     PreparedStatement select = conn.prepareStatement(selectSql)) {
+                    select.setInt(1, lastId);
+                    select.setInt(2, CHUNK_SIZE);
+                    try (ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) {
+                            chunkRows++;
+                            chunkLastId = rs.getInt("id");
+                            String password = rs.getString("password");
+                            // Skip if already hashed (or empty, which can't be hashed)
+                            if (password != null && !password.isEmpty() && !PasswordHasher.isHashed(password)) {
+                                ids.add(chunkLastId);
+                                plaintext.add(password);
+                            }
+                        }
+                    }
                 }
-                
-                // Hash the plaintext password
-                String hashedPassword = PasswordHasher.hashPassword(password);
-                
-                // Update the password in the database
-                try (PreparedStatement pstmt = conn.prepareStatement(updateSql)) {
-                    pstmt.setString(1, hashedPassword);
-                    pstmt.setInt(2, rs.getInt("id"));
-                    pstmt.executeUpdate();
-                    updatedCount++;
+                if (chunkRows == 0) {
+                    break;
                 }
+                scannedCount += chunkRows;
+
+                // BCrypt dominates the cost, so hash the chunk across all cores
+                // with the connection back in the pool
+                List<String> hashes = hashPool.submit(() -> plaintext.parallelStream()
+                        .map(PasswordHasher::hashPassword)
+                        .collect(Collectors.toList()))
+                    .get();
+
+                // Write the chunk and the resume point in one transaction
+                try (Connection conn = Database.getConnection()) {
+                    conn.setAutoCommit(false);
+                    try (PreparedStatement update = conn.prepareStatement(updateSql)) {
+                        for (int i = 0; i < hashes.size(); i++) {
+                            update.setString(1, hashes.get(i));
+                            update.setInt(2, ids.get(i));
+                            update.setString(3, plaintext.get(i));
+                            update.addBatch();
+                        }
+                        update.executeBatch();
+                        Database.putSetting(conn, LAST_ID_KEY, Integer.toString(chunkLastId));
+                        conn.commit();
+                    } catch (SQLException e) {
+                        conn.rollback();
+                        throw e;
+                    } finally {
+                        conn.setAutoCommit(true);
+                    }
+                }
+                updatedCount += hashes.size();
+                lastId = chunkLastId;
             }
-            
-            conn.commit();
-            System.out.println("Password migration complete. Updated " + updatedCount + " users.");
-            
+
+            Database.putSetting(COMPLETE_KEY, "true");
+
+            double seconds = (System.nanoTime() - started) / 1_000_000_000.0;
+            System.out.println(String.format(
+                "Password migration complete. Scanned %d users, updated %d in %.1f s (%.1f hashes/s).",
+                scannedCount, updatedCount, seconds, seconds > 0 ? updatedCount / seconds : 0));
+
         } catch (SQLException e) {
             System.err.println("Error during password migration: " + e.getMessage());
             e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Password migration interrupted; it will resume on next launch.");
+        } catch (ExecutionException e) {
+            System.err.println("Error hashing passwords during migration: " + e.getCause().getMessage());
+            e.printStackTrace();
+        } finally {
+            hashPool.shutdown();
         }
     }
-    
+
     /**
      * Main method to run the password migration.
      * This should be run once after deploying the password hashing update.
      */
     public static void main(String[] args) {
         System.out.println("Starting password migration...");
+        Database.init();
         migratePasswords();
     }
 }
@@ -0,0 +1,51 @@
+package com.loginapp;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Lets a caller cancel a query that is running on another thread. The
+ * {@link Database} method running the query attaches its statement while it
+ * executes; {@link #cancel()} then interrupts it with {@code Statement.cancel()}.
+ * A handle cancelled before the query starts stops it from running at all.
+ */
+public class QueryHandle {
+    private Statement statement;
+    private boolean cancelled = false;
+
+    /**
+     * Registers the statement about to be executed.
+     * @throws SQLException if the handle was already cancelled
+     */
+    public synchronized void attach(Statement statement) throws SQLException {
+        if (cancelled) {
+            throw new SQLException("Query was cancelled before it started");
+        }
+        this.statement = statement;
+    }
+
+    /**
+     * Unregisters the statement once it has finished executing.
+     */
+    public synchronized void detach() {
+        this.statement = null;
+    }
+
+    /**
+     * Cancels the query, interrupting it if it is currently executing.
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        if (statement != null) {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                System.err.println("Failed to cancel query: " + e.getMessage());
+            }
+        }
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,167 @@
+package com.loginapp;
+
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lightweight per-operation instrumentation for {@link Database} and
+ * {@link UserDAO}. Each operation keeps a call counter, an error counter and a
+ * latency histogram with power-of-two microsecond buckets, from which p50 and
+ * p99 are estimated. Calls slower than the threshold (system property
+ * {@code diary.slowQueryMs}, 100 ms by default) are kept in a bounded slow-query
+ * log. Recording a call does no I/O, so it is cheap enough for the hot path.
+ */
+public class QueryMetrics {
+    private static final long SLOW_QUERY_MS = Long.getLong("diary.slowQueryMs", 100);
+    private static final int SLOW_LOG_SIZE = 50;
+    private static final int BUCKETS = 32;
+
+    private static final Map<String, OperationStats> operations = new ConcurrentHashMap<>();
+    private static final Deque<String> slowLog = new ArrayDeque<>();
+
+    /**
+     * Starts timing one call of an operation. Close the timer in a finally
+     * block around the JDBC work so the elapsed time is recorded however it
+     * exits.
+     * @param operation The operation name, usually the method name
+     * @return The running timer
+     */
+    public static Timer start(String operation) {
+        return new Timer(operation);
+    }
+
+    /**
+     * Counts a failed call of an operation.
+     */
+    public static void recordError(String operation) {
+        stats(operation).errors.increment();
+    }
+
+    /**
+     * @return A human-readable report of every operation and the slow-query log
+     */
+    public static String snapshot() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-24s %8s %6s %10s %10s %10s%n",
+                                    "operation", "calls", "errors", "p50 (ms)", "p99 (ms)", "max (ms)"));
+        for (Map.Entry<String, OperationStats> entry : new TreeMap<>(operations).entrySet()) {
+            OperationStats stats = entry.getValue();
+            report.append(String.format("%-24s %8d %6d %10.2f %10.2f %10.2f%n",
+                                        entry.getKey(), stats.calls.sum(), stats.errors.sum(),
+                                        stats.percentileMillis(0.50), stats.percentileMillis(0.99),
+                                        stats.maxMicros.get() / 1000.0));
+        }
+        List<String> slow;
+        synchronized (slowLog) {
+            slow = new ArrayList<>(slowLog);
+        }
+        if (!slow.isEmpty()) {
+            report.append("Slow queries (>= ").append(SLOW_QUERY_MS).append(" ms):").append(System.lineSeparator());
+            for (String line : slow) {
+                report.append("  ").append(line).append(System.lineSeparator());
+            }
+        }
+        return report.toString();
+    }
+
+    /**
+     * Writes the current snapshot to the given stream.
+     */
+    public static void dump(PrintStream out) {
+        out.print(snapshot());
+        out.flush();
+    }
+
+    /**
+     * @return true if at least one operation has been recorded
+     */
+    public static boolean hasData() {
+        return !operations.isEmpty();
+    }
+
+    /**
+     * Clears all counters, histograms and the slow-query log.
+     */
+    public static void reset() {
+        operations.clear();
+        synchronized (slowLog) {
+            slowLog.clear();
+        }
+    }
+
+    private static OperationStats stats(String operation) {
+        return operations.computeIfAbsent(operation, name -> new OperationStats());
+    }
+
+    private static void record(String operation, long elapsedNanos) {
+        long micros = Math.max(1, elapsedNanos / 1000);
+        OperationStats stats = stats(operation);
+        stats.calls.increment();
+        stats.buckets.incrementAndGet(Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros)));
+        stats.maxMicros.accumulateAndGet(micros, Math::max);
+
+        if (micros >= SLOW_QUERY_MS * 1000) {
+            synchronized (slowLog) {
+                if (slowLog.size() == SLOW_LOG_SIZE) {
+                    slowLog.removeFirst();
+                }
+                slowLog.addLast(String.format("%s took %.1f ms on %s",
+                                              operation, micros / 1000.0, Thread.currentThread().getName()));
+            }
+        }
+    }
+
+    /**
+     * Times one call; records it when closed.
+     */
+    public static class Timer implements AutoCloseable {
+        private final String operation;
+        private final long startNanos = System.nanoTime();
+
+        private Timer(String operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public void close() {
+            record(operation, System.nanoTime() - startNanos);
+        }
+    }
+
+    private static class OperationStats {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        // Bucket i counts calls that took [2^i, 2^(i+1)) microseconds
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong maxMicros = new AtomicLong();
+
+        // Upper bound of the bucket holding the given quantile
+        double percentileMillis(double quantile) {
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                total += buckets.get(i);
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min((1L << (i + 1)), maxMicros.get()) / 1000.0;
+                }
+            }
+            return maxMicros.get() / 1000.0;
+        }
+    }
+}
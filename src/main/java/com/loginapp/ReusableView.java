@@ -0,0 +1,14 @@
+package com.loginapp;
+
+/**
+ * Implemented by controllers whose views {@link Main} caches. A cached view is
+ * loaded once and shown again on later navigations, so state that used to be
+ * set up by a fresh controller has to be reset here instead.
+ */
+public interface ReusableView {
+    /**
+     * Called on the FX thread every time the view becomes the scene root,
+     * including the first time.
+     */
+    void onViewShown();
+}
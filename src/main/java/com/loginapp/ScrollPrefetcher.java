@@ -0,0 +1,115 @@
+package com.loginapp;
+
+import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
+import javafx.scene.control.IndexedCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.skin.VirtualFlow;
+
+/**
+ * Watches which rows of a {@link ListView} are on screen and asks for more
+ * rows when the viewport comes within a threshold of either end of the loaded
+ * items. It follows the list's {@link VirtualFlow} position rather than input
+ * events, so wheel, trackpad, keyboard and scrollbar drags all count. It also
+ * lets the owner keep the viewport still while rows are added or dropped
+ * above it.
+ */
+public class ScrollPrefetcher {
+    private final ListView<?> list;
+    private final int threshold;
+    private final Runnable nearStart;
+    private final Runnable nearEnd;
+    private VirtualFlow<?> flow;
+    private boolean checkPending = false;
+
+    /**
+     * @param list The list to watch
+     * @param threshold How many rows from an end of the items counts as near it
+     * @param nearStart Called when the first visible row is near the first item
+     * @param nearEnd Called when the last visible row is near the last item
+     */
+    public ScrollPrefetcher(ListView<?> list, int threshold, Runnable nearStart, Runnable nearEnd) {
+        this.list = list;
+        this.threshold = threshold;
+        this.nearStart = nearStart;
+        this.nearEnd = nearEnd;
+
+        list.skinProperty().addListener((obs, oldSkin, newSkin) -> attach());
+        attach();
+        // New rows can leave the viewport near an end without any scrolling
+        list.getItems().addListener((ListChangeListener<Object>) c -> scheduleCheck());
+    }
+
+    /**
+     * @return The index of the first row on screen, or -1 if none is laid out
+     */
+    public int firstVisibleIndex() {
+        IndexedCell<?> first = flow != null ? flow.getFirstVisibleCell() : null;
+        return first != null ? first.getIndex() : -1;
+    }
+
+    /**
+     * @return How far the first row on screen is scrolled past the top, in pixels
+     */
+    public double firstVisibleOffset() {
+        IndexedCell<?> first = flow != null ? flow.getFirstVisibleCell() : null;
+        return first != null ? -first.getLayoutY() : 0;
+    }
+
+    /**
+     * Scrolls so that the given row is at the top, scrolled past it by the
+     * given offset; used to keep the same rows on screen after rows above them
+     * were added or removed.
+     */
+    public void restore(int index, double offset) {
+        if (flow == null || index < 0) {
+            return;
+        }
+        flow.scrollToTop(index);
+        if (offset != 0) {
+            flow.scrollPixels(offset);
+        }
+    }
+
+    /**
+     * Checks the visible range once the current changes are laid out.
+     */
+    public void scheduleCheck() {
+        if (checkPending) {
+            return;
+        }
+        checkPending = true;
+        Platform.runLater(() -> {
+            checkPending = false;
+            check();
+        });
+    }
+
+    private void check() {
+        if (flow == null) {
+            return;
+        }
+        IndexedCell<?> first = flow.getFirstVisibleCell();
+        IndexedCell<?> last = flow.getLastVisibleCell();
+        int size = list.getItems().size();
+        if (first == null || last == null || size == 0) {
+            return;
+        }
+        if (last.getIndex() >= size - 1 - threshold) {
+            nearEnd.run();
+        }
+        if (first.getIndex() <= threshold) {
+            nearStart.run();
+        }
+    }
+
+    private void attach() {
+        VirtualFlow<?> found = (VirtualFlow<?>) list.lookup(".virtual-flow");
+        if (found == null || found == flow) {
+            return;
+        }
+        flow = found;
+        flow.positionProperty().addListener((obs, oldPos, newPos) -> check());
+        scheduleCheck();
+    }
+}
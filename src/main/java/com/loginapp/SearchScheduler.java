@@ -0,0 +1,84 @@
+package com.loginapp;
+
+import javafx.animation.PauseTransition;
+import javafx.util.Duration;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Coalesces search requests from the UI and runs only the newest one.
+ * {@link #debounce} waits for a pause in typing before acting, and
+ * {@link #submit} cancels the query still in flight (via its
+ * {@link QueryHandle}) and drops any result that is not from the latest
+ * submission. Must be used from the JavaFX Application Thread.
+ */
+public class SearchScheduler {
+    private static final Duration DEFAULT_DELAY = Duration.millis(250);
+
+    private final PauseTransition delay;
+    private long latestTicket = 0;
+    private QueryHandle inFlight = null;
+
+    public SearchScheduler() {
+        this(DEFAULT_DELAY);
+    }
+
+    public SearchScheduler(Duration debounceDelay) {
+        delay = new PauseTransition(debounceDelay);
+    }
+
+    /**
+     * Runs the action once no further call has arrived within the debounce
+     * window. Each call restarts the window and replaces the pending action.
+     */
+    public void debounce(Runnable action) {
+        delay.setOnFinished(e -> action.run());
+        delay.playFromStart();
+    }
+
+    /**
+     * Runs the query on the database executor, superseding every earlier
+     * submission: its query is cancelled and its result is discarded.
+     * @param query The query to run, given a handle to attach its statement to
+     * @param onResult Called on the FX thread with the result of the latest query
+     * @param onError Called on the FX thread if the latest query fails
+     */
+    public <T> void submit(Function<QueryHandle, T> query, Consumer<T> onResult, Consumer<Throwable> onError) {
+        delay.stop();
+        cancelInFlight();
+
+        final long ticket = ++latestTicket;
+        final QueryHandle handle = new QueryHandle();
+        inFlight = handle;
+
+        DiaryRepository.submit(() -> query.apply(handle)).whenComplete((result, error) -> {
+            // Superseded while running; a newer result is on its way
+            if (ticket != latestTicket || handle.isCancelled()) {
+                return;
+            }
+            inFlight = null;
+            if (error != null) {
+                onError.accept(error);
+            } else {
+                onResult.accept(result);
+            }
+        });
+    }
+
+    /**
+     * Drops any pending debounced action and cancels the query in flight.
+     */
+    public void cancel() {
+        delay.stop();
+        cancelInFlight();
+        latestTicket++;
+    }
+
+    private void cancelInFlight() {
+        if (inFlight != null) {
+            inFlight.cancel();
+            inFlight = null;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.loginapp;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the highlighted excerpt shown under a full-text hit. The index keeps
+ * no copy of the text, so FTS5's snippet() has nothing to read; the excerpt is
+ * made from the decoded content instead, in the same shape: up to
+ * {@value #TOKENS} words around the matches, each match in brackets, and
+ * "..." where the content was cut. Words are split and folded like the
+ * index's unicode61 tokenizer with diacritics removed, so the words that are
+ * highlighted are the ones that matched.
+ */
+public class SearchSnippet {
+    private static final int TOKENS = 12;
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    /**
+     * @param content The entry content
+     * @param text The search input; every word is matched as a prefix
+     * @return The excerpt, or null if the content is empty
+     */
+    public static String build(String content, String text) {
+        if (content == null) {
+            return null;
+        }
+        List<int[]> tokens = tokenize(content);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        List<String> prefixes = new ArrayList<>();
+        for (int[] token : tokenize(text)) {
+            prefixes.add(fold(text.substring(token[0], token[1])));
+        }
+
+        boolean[] matches = new boolean[tokens.size()];
+        for (int i = 0; i < tokens.size(); i++) {
+            String word = fold(content.substring(tokens.get(i)[0], tokens.get(i)[1]));
+            for (String prefix : prefixes) {
+                if (word.startsWith(prefix)) {
+                    matches[i] = true;
+                    break;
+                }
+            }
+        }
+
+        // The window holding the most matches; the first one if there are none
+        int start = 0;
+        int best = -1;
+        for (int first = 0; first < tokens.size(); first++) {
+            if (first > 0 && !matches[first]) {
+                continue;
+            }
+            int count = 0;
+            for (int i = first; i < Math.min(first + TOKENS, tokens.size()); i++) {
+                if (matches[i]) {
+                    count++;
+                }
+            }
+            if (count > best) {
+                best = count;
+                start = first;
+            }
+        }
+        if (best > 0) {
+            // Centre the matches, so there is some context before them too
+            int last = start;
+            for (int i = start; i < Math.min(start + TOKENS, tokens.size()); i++) {
+                if (matches[i]) {
+                    last = i;
+                }
+            }
+            start -= (TOKENS - (last - start + 1)) / 2;
+        }
+        start = Math.max(0, Math.min(start, tokens.size() - TOKENS));
+        int end = Math.min(start + TOKENS, tokens.size());
+
+        // Text before the first word or after the last is kept at either end
+        StringBuilder snippet = new StringBuilder();
+        if (start > 0) {
+            snippet.append("...");
+        }
+        int copied = start > 0 ? tokens.get(start)[0] : 0;
+        for (int i = start; i < end; i++) {
+            int[] token = tokens.get(i);
+            snippet.append(content, copied, token[0]);
+            if (matches[i]) {
+                snippet.append('[').append(content, token[0], token[1]).append(']');
+            } else {
+                snippet.append(content, token[0], token[1]);
+            }
+            copied = token[1];
+        }
+        if (end < tokens.size()) {
+            snippet.append("...");
+        } else {
+            snippet.append(content, copied, content.length());
+        }
+        return snippet.toString();
+    }
+
+    // Start and end offsets of each run of letters and digits
+    private static List<int[]> tokenize(String text) {
+        List<int[]> tokens = new ArrayList<>();
+        int start = -1;
+        int i = 0;
+        while (i < text.length()) {
+            int codePoint = text.codePointAt(i);
+            boolean wordChar = Character.isLetterOrDigit(codePoint)
+                               || Character.getType(codePoint) == Character.NON_SPACING_MARK;
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(new int[] { start, i });
+                start = -1;
+            }
+            i += Character.charCount(codePoint);
+        }
+        if (start >= 0) {
+            tokens.add(new int[] { start, text.length() });
+        }
+        return tokens;
+    }
+
+    private static String fold(String word) {
+        String lower = word.toLowerCase(Locale.ROOT);
+        if (lower.chars().allMatch(c -> c < 0x80)) {
+            return lower;
+        }
+        return MARKS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+    }
+}
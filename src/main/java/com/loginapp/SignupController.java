@@ -1,13 +1,9 @@
 package com.loginapp;
 
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.PasswordField;
 import javafx.scene.control.TextField;
-import javafx.stage.Stage;
 import javafx.application.Platform;
 
 public class SignupController {
@@ -35,23 +31,25 @@ public class SignupController {
             return;
         }
         
-        if (UserDAO.signup(username, password)) {
-            Alert alert = new Alert(Alert.AlertType.INFORMATION);
-            alert.setContentText("Sign up successful!");
-            alert.show();
-            // After 1.5 seconds, close alert and redirect to login
-            new Thread(() -> {
-                try { Thread.sleep(1500); } catch (InterruptedException ignored) {}
-                Platform.runLater(() -> {
-                    alert.close();
-                    goToLogin();
-                });
-            }).start();
-        } else {
-            Alert alert = new Alert(Alert.AlertType.ERROR);
-            alert.setContentText("Sign up failed (maybe username exists)");
-            alert.showAndWait();
-        }
+        AuthService.signup(username, password).thenAccept(success -> {
+            if (success) {
+                Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                alert.setContentText("Sign up successful!");
+                alert.show();
+                // After 1.5 seconds, close alert and redirect to login
+                new Thread(() -> {
+                    try { Thread.sleep(1500); } catch (InterruptedException ignored) {}
+                    Platform.runLater(() -> {
+                        alert.close();
+                        goToLogin();
+                    });
+                }).start();
+            } else {
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setContentText("Sign up failed (maybe username exists)");
+                alert.showAndWait();
+            }
+        });
     }
 
     private void showAlert(String title, String message) {
@@ -64,10 +62,7 @@ public class SignupController {
 
     private void goToLogin() {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/loginapp/Login.fxml"));
-            Parent root = loader.load();
-            Stage stage = (Stage) usernameField.getScene().getWindow();
-            stage.setScene(new Scene(root));
+            Main.setRoot("Login.fxml");
         } catch (Exception e) {
             e.printStackTrace();
         }
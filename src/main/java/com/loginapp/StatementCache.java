@@ -0,0 +1,180 @@
+package com.loginapp;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Prepared statements of one pooled connection, keyed by SQL text. Callers
+ * keep using {@code conn.prepareStatement(sql)} in try-with-resources: the
+ * returned statement is a proxy whose {@code close()} resets it and gives it
+ * back to the cache, so SQLite compiles each statement once per connection.
+ * The cache holds at most {@link #MAX_STATEMENTS} statements, evicting the
+ * least recently used, and is emptied when
+ * {@link ConnectionManager#invalidateStatements()} signals a schema change.
+ */
+public class StatementCache {
+    private static final int MAX_STATEMENTS = 64;
+
+    private final Connection physical;
+    private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+    private int schemaEpoch;
+
+    StatementCache(Connection physical, int schemaEpoch) {
+        this.physical = physical;
+        this.schemaEpoch = schemaEpoch;
+    }
+
+    /**
+     * Returns a cached statement for the SQL, preparing it on first use. If
+     * the cached statement is already in use (the same SQL prepared twice at
+     * once), an uncached statement is returned instead.
+     * @param sql The SQL text
+     * @param currentEpoch The current schema epoch; a newer one empties the cache
+     * @return A statement to use and close as usual
+     */
+    PreparedStatement prepare(String sql, int currentEpoch) throws SQLException {
+        if (currentEpoch != schemaEpoch) {
+            closeAll();
+            schemaEpoch = currentEpoch;
+        }
+
+        CachedStatement cached = statements.get(sql);
+        if (cached == null) {
+            cached = new CachedStatement(physical.prepareStatement(sql));
+            statements.put(sql, cached);
+            evictIfFull();
+        } else if (cached.inUse) {
+            return physical.prepareStatement(sql);
+        }
+        cached.inUse = true;
+        return cached.checkOut();
+    }
+
+    /**
+     * Closes every cached statement. Statements in use are closed when they
+     * are given back.
+     */
+    void closeAll() {
+        for (CachedStatement cached : statements.values()) {
+            cached.evict();
+        }
+        statements.clear();
+    }
+
+    private void evictIfFull() {
+        Iterator<Map.Entry<String, CachedStatement>> eldest = statements.entrySet().iterator();
+        while (statements.size() > MAX_STATEMENTS && eldest.hasNext()) {
+            eldest.next().getValue().evict();
+            eldest.remove();
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * A physical prepared statement plus its checkout state.
+     */
+    private static class CachedStatement {
+        private final PreparedStatement statement;
+        private boolean inUse = false;
+        private boolean evicted = false;
+
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        PreparedStatement checkOut() {
+            return (PreparedStatement) Proxy.newProxyInstance(
+                StatementCache.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                new CheckoutHandler(this));
+        }
+
+        void checkIn(ResultSet openResults) {
+            inUse = false;
+            if (evicted) {
+                closeQuietly(statement);
+                return;
+            }
+            try {
+                if (openResults != null) {
+                    openResults.close();
+                }
+                statement.clearParameters();
+                statement.clearBatch();
+            } catch (SQLException e) {
+                // A statement that can't be reset can't be reused
+                evicted = true;
+                closeQuietly(statement);
+            }
+        }
+
+        void evict() {
+            evicted = true;
+            if (!inUse) {
+                closeQuietly(statement);
+            }
+        }
+    }
+
+    /**
+     * Forwards calls to the cached statement for one checkout; {@code close()}
+     * checks it back in instead of closing it.
+     */
+    private static class CheckoutHandler implements InvocationHandler {
+        private final CachedStatement cached;
+        private ResultSet openResults;
+        private boolean closed = false;
+
+        CheckoutHandler(CachedStatement cached) {
+            this.cached = cached;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        cached.checkIn(openResults);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement has been closed");
+            }
+            try {
+                Object result = method.invoke(cached.statement, args);
+                if (result instanceof ResultSet) {
+                    openResults = (ResultSet) result;
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.loginapp;
+
+import java.sql.*;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts diary entry timestamps stored as TEXT ("yyyy-MM-dd HH:mm:ss") to
+ * INTEGER epoch milliseconds in place. created_at was written in local time by
+ * the application; updated_at was last written by SQLite's CURRENT_TIMESTAMP,
+ * which is UTC. Entries are converted in id order, one chunk per transaction
+ * together with the last converted id, so the migration resumes where it
+ * stopped, and a flag in app_settings skips the scan once it has finished.
+ * {@link Bootstrap} runs it as background maintenance after the login window
+ * is shown. Until it has finished, queries that compare or sort by created_at
+ * use {@link #CREATED_AT_MILLIS} so unconverted rows still sort among the rest;
+ * a row edited meanwhile keeps the edit.
+ */
+public class TimestampMigration {
+    private static final int CHUNK_SIZE = 500;
+    private static final String LAST_ID_KEY = "timestamp_migration.last_id";
+    private static final String COMPLETE_KEY = "timestamp_migration.complete";
+
+    /**
+     * created_at as epoch millis whether or not the row was converted yet;
+     * TEXT values are local time. Unlike the bare column it cannot use the
+     * (user_id, created_at, id) index for ordering.
+     */
+    static final String CREATED_AT_MILLIS =
+        "(CASE WHEN typeof(created_at) = 'text' " +
+        "THEN CAST(strftime('%s', created_at, 'utc') AS INTEGER) * 1000 ELSE created_at END)";
+
+    // Set once every row is converted; until then readers use CREATED_AT_MILLIS
+    private static volatile boolean complete = false;
+
+    /**
+     * Reads whether an earlier run finished. Called once at startup.
+     */
+    public static void loadStatus() {
+        complete = "true".equals(Database.getSetting(COMPLETE_KEY));
+    }
+
+    /**
+     * @return true once every TEXT timestamp has been converted
+     */
+    public static boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Converts every remaining TEXT timestamp. Safe to run repeatedly.
+     */
+    public static void migrateTimestamps() {
+        if ("true".equals(Database.getSetting(COMPLETE_KEY))) {
+            complete = true;
+            return;
+        }
+
+        String selectSql = "SELECT id, created_at, updated_at FROM diary_entries WHERE id > ? ORDER BY id LIMIT ?";
+        // The app is in use meanwhile: only replace values that are still what was read
+        String updateSql = "UPDATE diary_entries SET " +
+                           "created_at = CASE WHEN created_at IS ? THEN ? ELSE created_at END, " +
+                           "updated_at = CASE WHEN updated_at IS ? THEN ? ELSE updated_at END " +
+                           "WHERE id = ?";
+        ZoneId local = ZoneId.systemDefault();
+        long started = System.nanoTime();
+        int scannedCount = 0;
+        int convertedCount = 0;
+
+        try (Connection conn = Database.getConnection()) {
+            String lastIdSetting = Database.getSetting(conn, LAST_ID_KEY);
+            int lastId = lastIdSetting != null ? Integer.parseInt(lastIdSetting) : 0;
+
+            while (true) {
+                List<Object[]> converted = new ArrayList<>();
+                int chunkRows = 0;
+                int chunkLastId = lastId;
+                try (PreparedStatement select = conn.prepareStatement(selectSql)) {
+                    select.setInt(1, lastId);
+                    select.setInt(2, CHUNK_SIZE);
+                    try (ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) {
+                            chunkRows++;
+                            chunkLastId = rs.getInt("id");
+                            Object createdAt = rs.getObject("created_at");
+                            Object updatedAt = rs.getObject("updated_at");
+                            if (!(createdAt instanceof String) && !(updatedAt instanceof String)) {
+                                continue;
+                            }
+                            Object newCreatedAt = convert(chunkLastId, createdAt, local);
+                            Object newUpdatedAt = convert(chunkLastId, updatedAt, ZoneOffset.UTC);
+                            converted.add(new Object[] { createdAt, newCreatedAt, updatedAt, newUpdatedAt,
+                                                         chunkLastId });
+                        }
+                    }
+                }
+                if (chunkRows == 0) {
+                    break;
+                }
+                scannedCount += chunkRows;
+
+                // Write the chunk and the resume point in one transaction
+                conn.setAutoCommit(false);
+                try (PreparedStatement update = conn.prepareStatement(updateSql)) {
+                    for (Object[] row : converted) {
+                        update.setObject(1, row[0]);
+                        update.setObject(2, row[1]);
+                        update.setObject(3, row[2]);
+                        update.setObject(4, row[3]);
+                        update.setInt(5, (Integer) row[4]);
+                        update.addBatch();
+                    }
+                    update.executeBatch();
+                    Database.putSetting(conn, LAST_ID_KEY, Integer.toString(chunkLastId));
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+                convertedCount += converted.size();
+                lastId = chunkLastId;
+            }
+
+            Database.putSetting(conn, COMPLETE_KEY, "true");
+            complete = true;
+
+            double seconds = (System.nanoTime() - started) / 1_000_000_000.0;
+            System.out.println(String.format(
+                "Timestamp migration complete. Scanned %d entries, converted %d in %.1f s.",
+                scannedCount, convertedCount, seconds));
+
+        } catch (SQLException e) {
+            System.err.println("Error during timestamp migration: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // Epoch millis for a TEXT timestamp; anything else, or unparseable text, is kept as is
+    private static Object convert(int id, Object value, ZoneId zone) {
+        if (!(value instanceof String)) {
+            return value;
+        }
+        Long millis = Database.parseLegacyTimestamp((String) value, zone);
+        if (millis == null) {
+            System.err.println("Entry " + id + " has an unreadable timestamp, left as is: " + value);
+            return value;
+        }
+        return millis;
+    }
+
+    /**
+     * Main method to run the timestamp migration on its own.
+     */
+    public static void main(String[] args) {
+        System.out.println("Starting timestamp migration...");
+        Database.init();
+        migrateTimestamps();
+    }
+}
@@ -6,6 +6,7 @@ public class UserDAO {
     public static boolean signup(String username, String password) {
         String hashedPassword = PasswordHasher.hashPassword(password);
         String sql = "INSERT INTO users(username, password) VALUES(?, ?)";
+        QueryMetrics.Timer timer = QueryMetrics.start("signup");
         try (Connection conn = Database.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, username);
@@ -13,30 +14,70 @@ public class UserDAO {
             pstmt.executeUpdate();
             return true;
         } catch (SQLException e) {
+            QueryMetrics.recordError("signup");
             e.printStackTrace();
             return false;
+        } finally {
+            timer.close();
         }
     }
 
     public static boolean login(String username, String password) {
         String sql = "SELECT id, username, password FROM users WHERE username = ?";
+        int userId;
+        String storedUsername;
+        String storedHash;
+        // Read the row and give the connection back before the slow BCrypt check
+        QueryMetrics.Timer timer = QueryMetrics.start("login");
         try (Connection conn = Database.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, username);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                String storedHash = rs.getString("password");
-                if (PasswordHasher.verifyPassword(password, storedHash)) {
-                    // Set the current user in the Database class
-                    Database.setCurrentUser(username);
-                    return true;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
                 }
+                userId = rs.getInt("id");
+                storedUsername = rs.getString("username");
+                storedHash = rs.getString("password");
             }
-            return false;
         } catch (SQLException e) {
+            QueryMetrics.recordError("login");
             e.printStackTrace();
             return false;
+        } finally {
+            timer.close();
+        }
+
+        if (!PasswordHasher.verifyPassword(password, storedHash)) {
+            return false;
+        }
+        // Remember the user for the rest of the session
+        UserSession.start(userId, storedUsername);
+        if (PasswordHasher.needsRehash(storedHash)) {
+            // A full hash at the target cost; the login does not wait for it
+            AuthService.runInBackground(() -> rehash(userId, password, storedHash));
+        }
+        return true;
+    }
+
+    // Upgrade a hash made with an outdated cost while the plaintext is at hand
+    private static void rehash(int userId, String password, String storedHash) {
+        String sql = "UPDATE users SET password = ? WHERE id = ? AND password = ?";
+        // Hash before borrowing a connection, it takes a few hundred milliseconds
+        String newHash = PasswordHasher.hashPassword(password);
+        QueryMetrics.Timer timer = QueryMetrics.start("rehash");
+        try (Connection conn = Database.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, newHash);
+            pstmt.setInt(2, userId);
+            pstmt.setString(3, storedHash);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            // The old hash still works, so a failed upgrade is not fatal
+            QueryMetrics.recordError("rehash");
+            e.printStackTrace();
+        } finally {
+            timer.close();
         }
     }
 }
@@ -0,0 +1,44 @@
+package com.loginapp;
+
+/**
+ * Holds the logged-in user for the lifetime of a session. Filled in by
+ * {@link UserDAO#login} from the row it already read, so DAO methods can take
+ * the user id from here instead of querying the users table again.
+ */
+public class UserSession {
+    private static volatile UserSession current = null;
+
+    private final int userId;
+    private final String username;
+
+    private UserSession(int userId, String username) {
+        this.userId = userId;
+        this.username = username;
+    }
+
+    /**
+     * Starts a new session for the given user, replacing any previous one.
+     * @param userId The id of the user row
+     * @param username The username of the user row
+     */
+    public static void start(int userId, String username) {
+        current = new UserSession(userId, username);
+    }
+
+    /**
+     * Ends the current session, if any.
+     */
+    public static void clear() {
+        current = null;
+    }
+
+    /**
+     * @return The current session, or null if nobody is logged in
+     */
+    public static UserSession get() {
+        return current;
+    }
+
+    public int getUserId() { return userId; }
+    public String getUsername() { return username; }
+}
@@ -0,0 +1,107 @@
+package com.loginapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Deleting many entries at once removes only the current user's, across
+ * several chunks, and either all of them or none.
+ */
+class BatchDeleteTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 2, 1, 9, 0);
+
+    @BeforeAll
+    static void createDatabase() throws IOException {
+        TestDatabase.create();
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        ConnectionManager.shutdown();
+    }
+
+    @Test
+    void deletesAcrossChunksAndKeepsTheRest() {
+        TestDatabase.logIn("many");
+        // Three chunks of 500, the last one short
+        List<Integer> ids = addEntries("Delete me", 1203);
+        List<Integer> kept = addEntries("Keep me", 5);
+
+        assertEquals(1203, Database.deleteDiaryEntries(ids));
+
+        List<Database.DiaryEntry> left = Database.getDiaryEntriesAfter(null, 2000);
+        assertEquals(kept.size(), left.size());
+        for (Database.DiaryEntry entry : left) {
+            assertTrue(kept.contains(entry.getId()));
+        }
+        assertTrue(Database.fullTextSearch("delete", null, 10).isEmpty());
+        assertNull(Database.getEntryContent(ids.get(0)));
+    }
+
+    @Test
+    void leavesOtherUsersEntriesAlone() {
+        TestDatabase.logIn("owner");
+        List<Integer> theirs = addEntries("Theirs", 3);
+        TestDatabase.logIn("intruder");
+        List<Integer> mine = addEntries("Mine", 2);
+        List<Integer> both = new ArrayList<>(mine);
+        both.addAll(theirs);
+
+        assertEquals(2, Database.deleteDiaryEntries(both));
+
+        TestDatabase.logIn("owner");
+        assertEquals(3, Database.getDiaryEntriesAfter(null, 10).size());
+    }
+
+    @Test
+    void deletesNothingIfAnyChunkFails() throws SQLException {
+        TestDatabase.logIn("unlucky");
+        List<Integer> ids = addEntries("Stays", 700);
+        // The second chunk hits an entry that refuses to be deleted
+        try (Connection conn = Database.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TRIGGER refuse_delete BEFORE DELETE ON diary_entries " +
+                         "WHEN OLD.id = " + ids.get(650) + " BEGIN SELECT RAISE(ABORT, 'refused'); END");
+        }
+        try {
+            assertEquals(0, Database.deleteDiaryEntries(ids));
+        } finally {
+            try (Connection conn = Database.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute("DROP TRIGGER refuse_delete");
+            }
+        }
+
+        EntryCache.clear();
+        assertEquals(700, Database.getDiaryEntriesAfter(null, 1000).size());
+    }
+
+    @Test
+    void emptySelectionDeletesNothing() {
+        TestDatabase.logIn("idle");
+        addEntries("Idle", 1);
+
+        assertEquals(0, Database.deleteDiaryEntries(List.of()));
+        assertEquals(1, Database.getDiaryEntriesAfter(null, 10).size());
+    }
+
+    private static List<Integer> addEntries(String title, int count) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(Database.addDiaryEntry(title + " " + i, "text", DAY.plusMinutes(i)));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,63 @@
+package com.loginapp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Short content is stored as text, long content compressed when that pays
+ * off, and every stored form reads back as the original text.
+ */
+class ContentCodecTest {
+    @Test
+    void shortContentStaysText() {
+        assertEquals("A short day.", ContentCodec.encode("A short day."));
+        assertNull(ContentCodec.encode(null));
+        assertNull(ContentCodec.decode(null));
+    }
+
+    @Test
+    void longContentIsCompressedAndReadBack() {
+        String content = "Caf\u00e9 by the lake, \u65e5\u8a18 and \ud83d\ude00. ".repeat(400);
+
+        Object stored = ContentCodec.encode(content);
+
+        assertTrue(stored instanceof byte[]);
+        byte[] bytes = (byte[]) stored;
+        assertArrayEquals(new byte[] { 'D', 'Z', 1 }, Arrays.copyOf(bytes, 3));
+        assertTrue(bytes.length < content.getBytes(StandardCharsets.UTF_8).length / 10);
+        assertEquals(content, ContentCodec.decode(stored));
+    }
+
+    @Test
+    void contentBelowTheThresholdStaysText() {
+        String justBelow = "a".repeat(ContentCodec.COMPRESS_THRESHOLD - 1);
+        // Two bytes each in UTF-8, so over the threshold at half the characters
+        String twoByte = "\u00e9".repeat(ContentCodec.COMPRESS_THRESHOLD / 2);
+
+        assertEquals(justBelow, ContentCodec.encode(justBelow));
+        assertTrue(ContentCodec.encode(twoByte) instanceof byte[]);
+    }
+
+    @Test
+    void readsLegacyPlainText() {
+        assertEquals("Written before compression", ContentCodec.decode("Written before compression"));
+        // Text some driver handed back as bytes, without the magic header
+        byte[] utf8 = "Caf\u00e9".getBytes(StandardCharsets.UTF_8);
+        assertEquals("Caf\u00e9", ContentCodec.decode(utf8));
+    }
+
+    @Test
+    void rejectsTruncatedContent() {
+        byte[] stored = (byte[]) ContentCodec.encode("lorem ipsum ".repeat(1000));
+        byte[] truncated = Arrays.copyOf(stored, stored.length / 2);
+
+        assertThrows(IllegalStateException.class, () -> ContentCodec.decode(truncated));
+    }
+}
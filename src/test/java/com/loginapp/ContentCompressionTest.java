@@ -0,0 +1,129 @@
+package com.loginapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Long content written before compression existed is compressed in place
+ * without touching updated_at or the full-text index, and compressed
+ * content written by the app is searchable like any other.
+ */
+class ContentCompressionTest {
+    private static final String LEGACY_LONG = "The heron stood in the reeds all morning. ".repeat(200);
+    private static final long UPDATED_AT = 1_700_000_000_000L;
+
+    @TempDir
+    Path dir;
+
+    private static int legacyLongId;
+    private static int legacyShortId;
+
+    @BeforeAll
+    static void createDiary() throws IOException, SQLException {
+        TestDatabase.create();
+        int userId = TestDatabase.logIn("writer");
+        // Written as TEXT, as every entry was before content was compressed
+        legacyLongId = insertText(userId, "Heron", LEGACY_LONG);
+        legacyShortId = insertText(userId, "Short", "A short note.");
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        ConnectionManager.shutdown();
+    }
+
+    @Test
+    void compressesLegacyTextInPlace() throws SQLException {
+        TestDatabase.logIn("writer");
+        ContentCompression.compressContent();
+
+        assertEquals("blob", column(legacyLongId, "typeof(content)"));
+        assertEquals("text", column(legacyShortId, "typeof(content)"));
+        assertEquals(Long.toString(UPDATED_AT), column(legacyLongId, "updated_at"));
+        assertEquals("true", Database.getSetting("content_compression.complete"));
+
+        ContentCache.clear();
+        assertEquals(LEGACY_LONG, Database.getEntryContent(legacyLongId));
+        Database.SearchHit hit = Database.fullTextSearch("heron", null, 10).get(0);
+        assertEquals(legacyLongId, hit.getEntry().getId());
+        assertTrue(hit.getSnippet().startsWith("The [heron] stood"), hit.getSnippet());
+    }
+
+    @Test
+    void indexesCompressedEntriesTheAppWrites() throws SQLException {
+        TestDatabase.logIn("writer");
+        int id = Database.addDiaryEntry("Safari", "A giraffe crossed the road. ".repeat(300),
+                                        LocalDateTime.of(2024, 6, 1, 18, 0));
+        assertEquals("blob", column(id, "typeof(content)"));
+        assertEquals(id, Database.fullTextSearch("giraffe", null, 10).get(0).getEntry().getId());
+
+        Database.updateDiaryEntry(id, "Safari", "A zebra crossed the road. ".repeat(300),
+                                  LocalDateTime.of(2024, 6, 2, 9, 0));
+        assertTrue(Database.fullTextSearch("giraffe", null, 10).isEmpty());
+        assertEquals(id, Database.fullTextSearch("zebra", null, 10).get(0).getEntry().getId());
+
+        // Back to plain text, which the triggers index
+        Database.updateDiaryEntry(id, "Safari", "Only a lion.", LocalDateTime.of(2024, 6, 3, 9, 0));
+        assertTrue(Database.fullTextSearch("zebra", null, 10).isEmpty());
+        assertEquals(id, Database.fullTextSearch("lion", null, 10).get(0).getEntry().getId());
+
+        Database.deleteDiaryEntry(id);
+        assertTrue(Database.fullTextSearch("lion", null, 10).isEmpty());
+    }
+
+    @Test
+    void indexesCompressedEntriesTheImporterWrites() throws Exception {
+        TestDatabase.logIn("exporter");
+        Database.addDiaryEntry("Trip", "We saw a walrus on the ice. ".repeat(300),
+                               LocalDateTime.of(2024, 7, 1, 12, 0));
+        Path export = dir.resolve("diary.jsonl");
+        DiaryExporter.exportJsonLines(export, null, null);
+
+        int importer = TestDatabase.logIn("importer");
+        DiaryImporter.importFile(export);
+
+        Database.SearchHit hit = Database.fullTextSearch("walrus", null, 10).get(0);
+        assertEquals(importer, hit.getEntry().getUserId());
+        assertEquals("blob", column(hit.getEntry().getId(), "typeof(content)"));
+    }
+
+    private static int insertText(int userId, String title, String content) throws SQLException {
+        try (Connection conn = Database.getConnection();
+             PreparedStatement insert = conn.prepareStatement(
+                 "INSERT INTO diary_entries (user_id, title, content, created_at, updated_at) " +
+                 "VALUES (?, ?, ?, ?, ?)")) {
+            insert.setInt(1, userId);
+            insert.setString(2, title);
+            insert.setString(3, content);
+            insert.setLong(4, UPDATED_AT);
+            insert.setLong(5, UPDATED_AT);
+            insert.executeUpdate();
+            try (ResultSet keys = insert.getGeneratedKeys()) {
+                return keys.getInt(1);
+            }
+        }
+    }
+
+    private static String column(int id, String expression) throws SQLException {
+        try (Connection conn = Database.getConnection();
+             PreparedStatement select = conn.prepareStatement(
+                 "SELECT " + expression + " FROM diary_entries WHERE id = ?")) {
+            select.setInt(1, id);
+            try (ResultSet rs = select.executeQuery()) {
+                return rs.getString(1);
+            }
+        }
+    }
+}
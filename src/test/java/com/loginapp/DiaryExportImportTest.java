@@ -0,0 +1,139 @@
+package com.loginapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Exports a diary and imports the export again, into the same diary and into
+ * another user's.
+ */
+class DiaryExportImportTest {
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void createDatabase() throws IOException {
+        TestDatabase.create();
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        ConnectionManager.shutdown();
+    }
+
+    @Test
+    void reimportingJsonLinesExportAddsNothing() throws Exception {
+        TestDatabase.logIn("jsonl");
+        writeEntries();
+        Path export = dir.resolve("diary.jsonl");
+
+        assertEquals(3, DiaryExporter.exportJsonLines(export, null, null));
+        DiaryImporter.Result result = DiaryImporter.importFile(export);
+
+        assertEquals(0, result.getImported());
+        assertEquals(3, result.getSkipped());
+        assertEquals(3, entries().size());
+    }
+
+    @Test
+    void reimportingMarkdownExportAddsNothing() throws Exception {
+        TestDatabase.logIn("markdown");
+        writeEntries();
+        Path export = dir.resolve("diary.zip");
+
+        assertEquals(3, DiaryExporter.exportMarkdownZip(export, null, null));
+        DiaryImporter.Result result = DiaryImporter.importFile(unzip(export));
+
+        assertEquals(0, result.getImported());
+        assertEquals(3, result.getSkipped());
+        assertEquals(3, entries().size());
+    }
+
+    @Test
+    void exportMovesToAnotherDiaryOnce() throws Exception {
+        TestDatabase.logIn("source");
+        writeEntries();
+        List<String> written = describe(entries());
+        Path export = dir.resolve("diary.jsonl");
+        DiaryExporter.exportJsonLines(export, null, null);
+
+        TestDatabase.logIn("target");
+        DiaryImporter.Result first = DiaryImporter.importFile(export);
+        DiaryImporter.Result second = DiaryImporter.importFile(export);
+
+        assertEquals(3, first.getImported());
+        assertEquals(0, second.getImported());
+        assertEquals(3, second.getSkipped());
+        assertEquals(written, describe(entries()));
+    }
+
+    @Test
+    void markdownExportKeepsAwkwardTitles() throws Exception {
+        TestDatabase.logIn("awkward source");
+        LocalDateTime minute = LocalDateTime.of(2024, 4, 1, 9, 15);
+        Database.addDiaryEntry("Say \"hi\" \\ wave", "one", minute);
+        Database.addDiaryEntry("Two\nlines: here", "two", minute);
+        // Same minute and title, so only the id tells the files apart
+        Database.addDiaryEntry("Twin", "first", minute);
+        Database.addDiaryEntry("Twin", "second", minute);
+        List<String> written = describe(entries());
+        Collections.sort(written);
+        Path export = dir.resolve("awkward.zip");
+        DiaryExporter.exportMarkdownZip(export, null, null);
+
+        TestDatabase.logIn("awkward target");
+        DiaryImporter.Result result = DiaryImporter.importFile(unzip(export));
+
+        assertEquals(4, result.getImported());
+        // All in the same minute, so the listing order follows the import order
+        List<String> imported = describe(entries());
+        Collections.sort(imported);
+        assertEquals(written, imported);
+    }
+
+    // Long enough content for the last entry to be stored compressed
+    private static void writeEntries() {
+        Database.addDiaryEntry("First", "Went for a walk.", LocalDateTime.of(2024, 3, 1, 8, 30));
+        Database.addDiaryEntry("Quotes \"and\" lines", "Line one\nline two", LocalDateTime.of(2024, 3, 2, 21, 5));
+        Database.addDiaryEntry("Long", "lorem ipsum ".repeat(1000), LocalDateTime.of(2024, 3, 3, 12, 0));
+    }
+
+    private static List<Database.DiaryEntry> entries() {
+        return Database.getDiaryEntriesAfter(null, 100);
+    }
+
+    private static List<String> describe(List<Database.DiaryEntry> entries) {
+        List<String> described = new ArrayList<>();
+        for (Database.DiaryEntry entry : entries) {
+            described.add(entry.getTitle() + " " + entry.getCreatedAt() + " "
+                          + Database.getEntryContent(entry.getId()));
+        }
+        return described;
+    }
+
+    private Path unzip(Path zip) throws IOException {
+        Path folder = Files.createDirectory(dir.resolve("unzipped"));
+        try (InputStream file = Files.newInputStream(zip);
+             ZipInputStream in = new ZipInputStream(file)) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                Files.copy(in, folder.resolve(entry.getName()));
+            }
+        }
+        return folder;
+    }
+}
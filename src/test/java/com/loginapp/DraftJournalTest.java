@@ -0,0 +1,176 @@
+package com.loginapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Drafts survive a restart, a damaged record at the end of the journal is
+ * cut off, the journal is compacted once it grows, and restoring writes
+ * each draft back to its entry, keeping the ones that could not be saved.
+ */
+class DraftJournalTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 8, 1, 10, 0);
+
+    @BeforeAll
+    static void createDatabase() throws IOException {
+        TestDatabase.create();
+        Files.deleteIfExists(journal());
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        DraftJournal.shutdown();
+        ConnectionManager.shutdown();
+    }
+
+    @Test
+    void latestSnapshotOfOpenDraftsSurvivesARestart() {
+        int userId = TestDatabase.logIn("restart");
+        DraftJournal.save(draft("restart-1", userId, -1, "first"));
+        DraftJournal.save(draft("restart-1", userId, -1, "first, edited"));
+        DraftJournal.save(draft("restart-2", userId, -1, "second"));
+        DraftJournal.end("restart-2");
+
+        DraftJournal.reload();
+
+        List<DraftJournal.Draft> pending = DraftJournal.pendingDraftsNow(userId);
+        assertEquals(List.of("restart-1"), ids(pending));
+        assertEquals("first, edited", pending.get(0).getContent());
+    }
+
+    @Test
+    void tornRecordAtTheEndIsCutOff() throws IOException {
+        int userId = TestDatabase.logIn("torn");
+        DraftJournal.save(draft("torn-1", userId, -1, "kept"));
+        DraftJournal.reload();
+        long intact = Files.size(journal());
+
+        // A crash part way through writing a record: the header and a few bytes of the body
+        ByteBuffer torn = ByteBuffer.allocate(Integer.BYTES + Long.BYTES + 10);
+        torn.putInt(500).putLong(12345L);
+        Files.write(journal(), torn.array(), StandardOpenOption.APPEND);
+        DraftJournal.reload();
+
+        assertEquals(List.of("torn-1"), ids(DraftJournal.pendingDraftsNow(userId)));
+        assertEquals(intact, Files.size(journal()));
+    }
+
+    @Test
+    void recordFailingItsChecksumIsDropped() throws IOException {
+        int userId = TestDatabase.logIn("checksum");
+        DraftJournal.save(draft("checksum-1", userId, -1, "intact"));
+        DraftJournal.save(draft("checksum-2", userId, -1, "damaged"));
+        DraftJournal.reload();
+
+        byte[] bytes = Files.readAllBytes(journal());
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(journal(), bytes);
+        DraftJournal.reload();
+
+        assertEquals(List.of("checksum-1"), ids(DraftJournal.pendingDraftsNow(userId)));
+    }
+
+    @Test
+    void compactsOnceTheJournalGrows() throws IOException {
+        int userId = TestDatabase.logIn("compact");
+        String megabyte = "x".repeat(1024 * 1024);
+        for (int i = 0; i < 6; i++) {
+            DraftJournal.save(draft("compact-1", userId, -1, megabyte + i));
+        }
+        DraftJournal.reload();
+
+        // Six snapshots would take 6 MB; compaction keeps it below the 4 MB limit
+        assertTrue(Files.size(journal()) < 4L * 1024 * 1024, "journal is " + Files.size(journal()) + " bytes");
+        List<DraftJournal.Draft> pending = DraftJournal.pendingDraftsNow(userId);
+        assertEquals(List.of("compact-1"), ids(pending));
+        assertEquals(megabyte + 5, pending.get(0).getContent());
+    }
+
+    @Test
+    void restoresEditsDeletedEntriesAndNewOnes() {
+        int userId = TestDatabase.logIn("restore");
+        int kept = Database.addDiaryEntry("Kept", "before", DAY);
+        int deleted = Database.addDiaryEntry("Deleted", "before", DAY.plusHours(1));
+        Database.deleteDiaryEntry(deleted);
+        List<DraftJournal.Draft> drafts = List.of(draft("restore-1", userId, kept, "edited"),
+                                                  draft("restore-2", userId, deleted, "brought back"),
+                                                  draft("restore-3", userId, -1, "brand new"));
+        drafts.forEach(DraftJournal::save);
+
+        assertEquals(3, DraftJournal.restoreNow(drafts));
+
+        assertEquals("edited", Database.getEntryContent(kept));
+        assertNull(Database.getEntryContent(deleted));
+        EntryCache.clear();
+        List<String> contents = new ArrayList<>();
+        for (Database.DiaryEntry entry : Database.getDiaryEntriesAfter(null, 10)) {
+            contents.add(Database.getEntryContent(entry.getId()));
+        }
+        assertEquals(3, contents.size());
+        assertTrue(contents.containsAll(List.of("edited", "brought back", "brand new")), contents.toString());
+        assertTrue(DraftJournal.pendingDraftsNow(userId).isEmpty());
+    }
+
+    @Test
+    void failedUpdateKeepsTheDraftAndAddsNothing() throws SQLException {
+        int userId = TestDatabase.logIn("failing");
+        int entry = Database.addDiaryEntry("Locked", "before", DAY);
+        DraftJournal.Draft draft = draft("failing-1", userId, entry, "after");
+        DraftJournal.save(draft);
+
+        execute("CREATE TRIGGER refuse_update BEFORE UPDATE ON diary_entries " +
+                "WHEN OLD.id = " + entry + " BEGIN SELECT RAISE(ABORT, 'refused'); END");
+        try {
+            assertEquals(0, DraftJournal.restoreNow(List.of(draft)));
+        } finally {
+            execute("DROP TRIGGER refuse_update");
+        }
+
+        EntryCache.clear();
+        assertEquals(1, Database.getDiaryEntriesAfter(null, 10).size());
+        assertEquals("before", Database.getEntryContent(entry));
+        assertEquals(List.of("failing-1"), ids(DraftJournal.pendingDraftsNow(userId)));
+
+        // Offered again next time, and saved once the update goes through
+        assertEquals(1, DraftJournal.restoreNow(DraftJournal.pendingDraftsNow(userId)));
+        assertEquals("after", Database.getEntryContent(entry));
+    }
+
+    private static DraftJournal.Draft draft(String draftId, int userId, int entryId, String content) {
+        return new DraftJournal.Draft(draftId, userId, entryId, System.currentTimeMillis(), "Draft", content);
+    }
+
+    private static List<String> ids(List<DraftJournal.Draft> drafts) {
+        List<String> ids = new ArrayList<>();
+        drafts.forEach(draft -> ids.add(draft.getDraftId()));
+        return ids;
+    }
+
+    private static Path journal() {
+        return Paths.get(System.getProperty("diary.drafts", "drafts.journal"));
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection conn = Database.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.loginapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Keyset pages of the entry list cover every entry exactly once, newest
+ * first, also where a page ends between entries with the same timestamp.
+ */
+class EntryPagingTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 8, 0);
+    // Newest first, as the list orders them: created_at DESC, id DESC
+    private static final List<Database.DiaryEntry> expected = new ArrayList<>();
+
+    @BeforeAll
+    static void createDiary() throws IOException {
+        TestDatabase.create();
+        TestDatabase.logIn("neighbour");
+        for (int i = 0; i < 50; i++) {
+            Database.addDiaryEntry("Not mine " + i, "text", START.plusHours(i));
+        }
+        int userId = TestDatabase.logIn("pager");
+        // Three entries share each timestamp, so ties have to be broken by id
+        for (int i = 0; i < 450; i++) {
+            LocalDateTime createdAt = START.plusHours(i / 3);
+            int id = Database.addDiaryEntry("Entry " + i, "text", createdAt);
+            expected.add(new Database.DiaryEntry(id, userId, "Entry " + i, null, createdAt));
+        }
+        expected.sort(Comparator.comparing(Database.DiaryEntry::getCreatedAt)
+                                .thenComparing(Database.DiaryEntry::getId).reversed());
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        ConnectionManager.shutdown();
+    }
+
+    @Test
+    void coldPagesCoverEveryEntryOnce() {
+        // Ten per page ends pages in the middle of a run of equal timestamps
+        List<List<Database.DiaryEntry>> pages = new ArrayList<>();
+        Database.PageCursor cursor = null;
+        while (true) {
+            EntryCache.clear();
+            List<Database.DiaryEntry> page = Database.getDiaryEntriesAfter(cursor, 10);
+            if (page.isEmpty()) {
+                break;
+            }
+            pages.add(page);
+            cursor = Database.PageCursor.after(page.get(page.size() - 1));
+        }
+
+        assertEquals(45, pages.size());
+        for (List<Database.DiaryEntry> page : pages) {
+            assertEquals(10, page.size());
+        }
+        assertEquals(ids(expected), ids(flatten(pages)));
+    }
+
+    @Test
+    void cachedPagesEndWithAShortPage() {
+        EntryCache.clear();
+        List<Database.DiaryEntry> all = new ArrayList<>();
+        List<Database.DiaryEntry> page = Database.getDiaryEntriesAfter(null, 7);
+        int lastSize = 0;
+        while (!page.isEmpty()) {
+            all.addAll(page);
+            lastSize = page.size();
+            page = Database.getDiaryEntriesAfter(Database.PageCursor.after(page.get(page.size() - 1)), 7);
+        }
+
+        assertEquals(450 % 7, lastSize);
+        assertEquals(ids(expected), ids(all));
+    }
+
+    @Test
+    void pagingBackMirrorsPagingForward() {
+        for (int start = 10; start < expected.size(); start += 10) {
+            Database.PageCursor before = Database.PageCursor.after(expected.get(start));
+            List<Database.DiaryEntry> page = Database.searchEntriesBefore(Database.SearchQuery.all(), before,
+                                                                          10, null);
+
+            assertEquals(ids(expected.subList(start - 10, start)), ids(page));
+        }
+        Database.PageCursor top = Database.PageCursor.after(expected.get(0));
+        assertTrue(Database.searchEntriesBefore(Database.SearchQuery.all(), top, 10, null).isEmpty());
+    }
+
+    @Test
+    void pageAfterTheLastEntryIsEmpty() {
+        EntryCache.clear();
+        Database.PageCursor last = Database.PageCursor.after(expected.get(expected.size() - 1));
+
+        assertTrue(Database.getDiaryEntriesAfter(last, 10).isEmpty());
+    }
+
+    private static List<Database.DiaryEntry> flatten(List<List<Database.DiaryEntry>> pages) {
+        List<Database.DiaryEntry> all = new ArrayList<>();
+        pages.forEach(all::addAll);
+        return all;
+    }
+
+    private static List<Integer> ids(List<Database.DiaryEntry> entries) {
+        List<Integer> ids = new ArrayList<>();
+        entries.forEach(entry -> ids.add(entry.getId()));
+        return ids;
+    }
+}
@@ -0,0 +1,116 @@
+package com.loginapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Full-text search ranks title matches first, matches word prefixes without
+ * regard to case or accents, highlights the match in a snippet and pages by
+ * keyset on (score, id) in both directions.
+ */
+class FullTextSearchTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 5, 1, 20, 0);
+
+    @BeforeAll
+    static void createDiary() throws IOException {
+        TestDatabase.create();
+        TestDatabase.logIn("other");
+        Database.addDiaryEntry("Garden", "not mine to find", DAY);
+        TestDatabase.logIn("searcher");
+        Database.addDiaryEntry("Garden", "Planted tomatoes today.", DAY);
+        Database.addDiaryEntry("Tuesday", "Spent the afternoon in the garden with a book.", DAY.plusDays(1));
+        Database.addDiaryEntry("Caf\u00e9", "Coffee at the new caf\u00e9 downtown.", DAY.plusDays(2));
+        Database.addDiaryEntry("Long day", "Woke up early. " + "Nothing happened. ".repeat(40)
+                                           + "Then the gardener came by. " + "More nothing. ".repeat(40),
+                               DAY.plusDays(3));
+        for (int i = 0; i < 25; i++) {
+            Database.addDiaryEntry("Run " + i, "Morning run around the lake.", DAY.plusDays(10 + i));
+        }
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        ConnectionManager.shutdown();
+    }
+
+    @Test
+    void titleMatchesRankAboveContentMatches() {
+        List<Database.SearchHit> hits = Database.fullTextSearch("garden", null, 10);
+
+        assertEquals(List.of("Garden", "Tuesday", "Long day"), titles(hits));
+    }
+
+    @Test
+    void matchesPrefixesCaseAndAccentsInsensitively() {
+        assertEquals(List.of("Caf\u00e9"), titles(Database.fullTextSearch("CAFE", null, 10)));
+        assertEquals(List.of("Garden"), titles(Database.fullTextSearch("tomat", null, 10)));
+        assertEquals(List.of("Tuesday"), titles(Database.fullTextSearch("garden book", null, 10)));
+    }
+
+    @Test
+    void takesQuerySyntaxLiterally() {
+        // Not an OR of two words, nor a NOT: every word has to be in the entry
+        assertTrue(Database.fullTextSearch("garden OR \"", null, 10).isEmpty());
+        assertEquals(List.of("Garden"), titles(Database.fullTextSearch("-tomatoes*", null, 10)));
+        assertTrue(Database.fullTextSearch("   ", null, 10).isEmpty());
+    }
+
+    @Test
+    void snippetsHighlightTheMatch() {
+        List<Database.SearchHit> hits = Database.fullTextSearch("garden", null, 10);
+
+        assertEquals("Planted tomatoes today.", hits.get(0).getSnippet());
+        assertEquals("Spent the afternoon in the [garden] with a book.", hits.get(1).getSnippet());
+        String cut = hits.get(2).getSnippet();
+        assertTrue(cut.startsWith("...") && cut.endsWith("..."), cut);
+        assertTrue(cut.contains("[gardener]"), cut);
+        assertEquals("Coffee at the new [caf\u00e9] downtown.",
+                     Database.fullTextSearch("cafe", null, 10).get(0).getSnippet());
+    }
+
+    @Test
+    void pagesForwardAndBackByKeyset() {
+        List<Database.SearchHit> all = Database.fullTextSearch("run", null, 100);
+        assertEquals(25, all.size());
+
+        List<Database.SearchHit> paged = new ArrayList<>();
+        List<List<Database.SearchHit>> pages = new ArrayList<>();
+        Database.SearchHit after = null;
+        while (true) {
+            List<Database.SearchHit> page = Database.fullTextSearch("run", after, 7);
+            if (page.isEmpty()) {
+                break;
+            }
+            pages.add(page);
+            paged.addAll(page);
+            after = page.get(page.size() - 1);
+        }
+        assertEquals(ids(all), ids(paged));
+
+        for (int i = 1; i < pages.size(); i++) {
+            List<Database.SearchHit> back = Database.fullTextSearchBefore("run", pages.get(i).get(0), 7, null);
+            assertEquals(ids(pages.get(i - 1)), ids(back));
+        }
+        assertTrue(Database.fullTextSearchBefore("run", all.get(0), 7, null).isEmpty());
+    }
+
+    private static List<String> titles(List<Database.SearchHit> hits) {
+        List<String> titles = new ArrayList<>();
+        hits.forEach(hit -> titles.add(hit.getEntry().getTitle()));
+        return titles;
+    }
+
+    private static List<Integer> ids(List<Database.SearchHit> hits) {
+        List<Integer> ids = new ArrayList<>();
+        hits.forEach(hit -> ids.add(hit.getEntry().getId()));
+        return ids;
+    }
+}
@@ -0,0 +1,79 @@
+package com.loginapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Plaintext passwords are hashed, resuming after the last committed chunk,
+ * and the scan is skipped once the migration has finished.
+ */
+class PasswordMigrationTest {
+    @BeforeAll
+    static void createDatabase() throws IOException {
+        TestDatabase.create();
+        // The cheapest cost the hasher accepts keeps the test quick
+        Database.putSetting("bcrypt.cost", "10");
+        PasswordHasher.loadStoredWorkload();
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        ConnectionManager.shutdown();
+    }
+
+    @Test
+    void hashesPlaintextResumesAndThenSkips() throws SQLException {
+        for (int i = 1; i <= 5; i++) {
+            insertUser("user" + i, "password" + i);
+        }
+        // As if an earlier run had committed the chunk ending at user 2
+        Database.putSetting("password_migration.last_id", "2");
+
+        PasswordMigration.migratePasswords();
+
+        assertEquals("password1", storedPassword("user1"));
+        assertEquals("password2", storedPassword("user2"));
+        for (int i = 3; i <= 5; i++) {
+            String stored = storedPassword("user" + i);
+            assertTrue(PasswordHasher.isHashed(stored));
+            assertTrue(PasswordHasher.verifyPassword("password" + i, stored));
+        }
+        assertEquals("5", Database.getSetting("password_migration.last_id"));
+        assertEquals("true", Database.getSetting("password_migration.complete"));
+
+        // Finished, so a later plaintext row is not even looked at
+        insertUser("late", "plain");
+        PasswordMigration.migratePasswords();
+        assertFalse(PasswordHasher.isHashed(storedPassword("late")));
+    }
+
+    private static void insertUser(String username, String password) throws SQLException {
+        try (Connection conn = Database.getConnection();
+             PreparedStatement insert = conn.prepareStatement("INSERT INTO users (username, password) VALUES (?, ?)")) {
+            insert.setString(1, username);
+            insert.setString(2, password);
+            insert.executeUpdate();
+        }
+    }
+
+    private static String storedPassword(String username) throws SQLException {
+        try (Connection conn = Database.getConnection();
+             PreparedStatement select = conn.prepareStatement("SELECT password FROM users WHERE username = ?")) {
+            select.setString(1, username);
+            try (ResultSet rs = select.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }
+    }
+}
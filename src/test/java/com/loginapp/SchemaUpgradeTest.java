@@ -0,0 +1,129 @@
+package com.loginapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A database written by the first release is brought up to the current
+ * schema in one go, and its entries can be listed, searched and edited
+ * before their timestamps are converted.
+ */
+class SchemaUpgradeTest {
+    private static final String LONG_CONTENT = "An elephant passed by. ".repeat(300);
+
+    @BeforeAll
+    static void upgradeLegacyDatabase() throws IOException, SQLException {
+        try (Connection conn = TestDatabase.createLegacy();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO users (id, username, password) VALUES (1, 'legacy', 'secret')");
+            stmt.execute("INSERT INTO diary_entries (user_id, title, content, created_at, updated_at) VALUES " +
+                         "(1, 'Old walk', 'Went for a walk.', '2023-01-05 10:00:00', '2023-01-05 15:00:00'), " +
+                         "(1, 'Long', '" + LONG_CONTENT + "', '2023-01-06 10:00:00', '2023-01-06 15:00:00'), " +
+                         "(1, 'Newest', 'Nothing much.', '2023-01-07 10:00:00', '2023-01-07 15:00:00')");
+        }
+
+        Database.init();
+        TimestampMigration.loadStatus();
+        UserSession.start(1, "legacy");
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        ConnectionManager.shutdown();
+    }
+
+    @Test
+    void upgradesToTheCurrentVersion() throws SQLException {
+        try (Connection conn = Database.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            assertEquals(7, rs.getInt(1));
+        }
+        Database.putSetting("upgraded", "yes");
+        assertEquals("yes", Database.getSetting("upgraded"));
+    }
+
+    @Test
+    void listsLegacyEntriesNewestFirst() {
+        List<Database.DiaryEntry> entries = Database.getDiaryEntriesAfter(null, 10);
+
+        // Other tests add entries of their own in between
+        List<Database.DiaryEntry> legacy = new ArrayList<>();
+        for (Database.DiaryEntry entry : entries) {
+            if (List.of("Newest", "Long", "Old walk").contains(entry.getTitle())) {
+                legacy.add(entry);
+            }
+        }
+        assertEquals(3, legacy.size());
+        assertEquals("Newest", legacy.get(0).getTitle());
+        assertEquals(LocalDateTime.of(2023, 1, 7, 10, 0), legacy.get(0).getCreatedAt());
+        assertEquals("Long", legacy.get(1).getTitle());
+        assertEquals(LONG_CONTENT, Database.getEntryContent(legacy.get(1).getId()));
+        assertEquals("Old walk", legacy.get(2).getTitle());
+    }
+
+    @Test
+    void indexesLegacyEntries() {
+        assertEquals("Long", Database.fullTextSearch("elephant", null, 10).get(0).getEntry().getTitle());
+        assertEquals("Old walk", Database.fullTextSearch("walk", null, 10).get(0).getEntry().getTitle());
+    }
+
+    @Test
+    void clientsWithoutTheAppCanEditEntries() throws SQLException {
+        // A plain connection, like the sqlite3 shell, without diary_text()
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + TestDatabase.file());
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO diary_entries (user_id, title, content, created_at, updated_at) " +
+                         "VALUES (1, 'Scribbled', 'Written in the shell.', '2022-06-01 08:00:00', " +
+                         "'2022-06-01 08:00:00')");
+            stmt.execute("UPDATE diary_entries SET title = 'Typed stroll' WHERE title = 'Scribbled'");
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT typeof(updated_at) FROM diary_entries WHERE title = 'Typed stroll'")) {
+                // The trigger stamps edits in epoch millis
+                assertEquals("integer", rs.getString(1));
+            }
+        }
+        EntryCache.clear();
+
+        assertEquals(1, Database.fullTextSearch("shell", null, 10).size());
+        assertEquals("Typed stroll", Database.fullTextSearch("stroll", null, 10).get(0).getEntry().getTitle());
+        assertEquals(0, Database.fullTextSearch("scribbled", null, 10).size());
+    }
+
+    @Test
+    void appWritesMixWithLegacyRows() throws SQLException {
+        int id = Database.addDiaryEntry("In between", "text", LocalDateTime.of(2023, 1, 6, 12, 0));
+
+        try (Connection conn = Database.getConnection();
+             PreparedStatement select = conn.prepareStatement(
+                 "SELECT typeof(created_at) FROM diary_entries WHERE id = ?")) {
+            select.setInt(1, id);
+            try (ResultSet rs = select.executeQuery()) {
+                assertEquals("integer", rs.getString(1));
+            }
+        }
+        // The TEXT and INTEGER timestamps sort and filter as one
+        LocalDate day = LocalDate.of(2023, 1, 6);
+        List<Database.DiaryEntry> onDay = Database.searchEntries(Database.SearchQuery.between(day, day), null, 10);
+        assertEquals(2, onDay.size());
+        assertEquals("In between", onDay.get(0).getTitle());
+        assertEquals("Long", onDay.get(1).getTitle());
+        EntryCache.clear();
+        Database.PageCursor after = Database.PageCursor.after(onDay.get(0));
+        assertEquals("Long", Database.getDiaryEntriesAfter(after, 1).get(0).getTitle());
+    }
+}
@@ -0,0 +1,138 @@
+package com.loginapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Title and date searches return every match in full pages, also matches
+ * far older than the first page of the listing.
+ */
+class SearchEntriesTest {
+    private static int userId;
+
+    @BeforeAll
+    static void createDiary() throws IOException {
+        TestDatabase.create();
+        TestDatabase.logIn("other");
+        Database.addDiaryEntry("Walk in the park", "not mine", LocalDateTime.of(2023, 6, 1, 9, 0));
+        userId = TestDatabase.logIn("searcher");
+        // One entry a day through 2023, every tenth one a walk, two on March 5th
+        LocalDateTime day = LocalDateTime.of(2023, 1, 1, 20, 0);
+        for (int i = 0; i < 365; i++) {
+            Database.addDiaryEntry(i % 10 == 0 ? "Walk " + i : "Day " + i, "text", day.plusDays(i));
+        }
+        Database.addDiaryEntry("100% done", "text", LocalDateTime.of(2023, 3, 5, 7, 0));
+        Database.addDiaryEntry("100x done", "text", LocalDateTime.of(2023, 3, 5, 8, 0));
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        ConnectionManager.shutdown();
+    }
+
+    @BeforeEach
+    void startCold() {
+        EntryCache.clear();
+    }
+
+    @Test
+    void titleSearchFindsOldMatchesInFullPages() {
+        List<List<Database.DiaryEntry>> pages = allPages(Database.SearchQuery.byTitle("walk"), 10);
+
+        assertEquals(List.of(10, 10, 10, 7), sizes(pages));
+        List<Database.DiaryEntry> matches = flatten(pages);
+        assertEquals("Walk 360", matches.get(0).getTitle());
+        assertEquals("Walk 0", matches.get(matches.size() - 1).getTitle());
+        for (Database.DiaryEntry entry : matches) {
+            assertEquals(userId, entry.getUserId());
+        }
+    }
+
+    @Test
+    void titleSearchTakesWildcardsLiterally() {
+        List<Database.DiaryEntry> matches = flatten(allPages(Database.SearchQuery.byTitle("100%"), 10));
+
+        assertEquals(List.of("100% done"), titles(matches));
+    }
+
+    @Test
+    void dateSearchKeepsWholeDays() {
+        List<Database.DiaryEntry> onDay = flatten(allPages(Database.SearchQuery.onDate(LocalDate.of(2023, 3, 5)), 2));
+
+        assertEquals(List.of("Day 63", "100x done", "100% done"), titles(onDay));
+    }
+
+    @Test
+    void rangeSearchIncludesBothEnds() {
+        Database.SearchQuery march = Database.SearchQuery.between(LocalDate.of(2023, 3, 1), LocalDate.of(2023, 3, 31));
+        List<Database.DiaryEntry> matches = flatten(allPages(march, 7));
+
+        assertEquals(33, matches.size());
+        assertEquals(LocalDate.of(2023, 3, 31), matches.get(0).getCreatedAt().toLocalDate());
+        assertEquals(LocalDate.of(2023, 3, 1), matches.get(matches.size() - 1).getCreatedAt().toLocalDate());
+    }
+
+    @Test
+    void cachedAndQueriedPagesAgree() {
+        Database.SearchQuery query = Database.SearchQuery.byTitle("WALK");
+        List<Database.DiaryEntry> cold = flatten(allPages(query, 10));
+        // The first pass filled the entry cache, so this one is answered from memory
+        List<Database.DiaryEntry> warm = flatten(allPages(query, 10));
+
+        assertEquals(titles(cold), titles(warm));
+    }
+
+    @Test
+    void pagingBackReturnsThePreviousPage() {
+        Database.SearchQuery query = Database.SearchQuery.byTitle("walk");
+        List<List<Database.DiaryEntry>> pages = allPages(query, 10);
+        List<Database.DiaryEntry> second = pages.get(1);
+
+        List<Database.DiaryEntry> before = Database.searchEntriesBefore(query, Database.PageCursor.after(second.get(0)),
+                                                                        10, null);
+
+        assertEquals(titles(pages.get(0)), titles(before));
+        assertEquals(0, Database.searchEntriesBefore(query, Database.PageCursor.after(pages.get(0).get(0)),
+                                                     10, null).size());
+    }
+
+    private static List<List<Database.DiaryEntry>> allPages(Database.SearchQuery query, int pageSize) {
+        List<List<Database.DiaryEntry>> pages = new ArrayList<>();
+        Database.PageCursor cursor = null;
+        while (true) {
+            List<Database.DiaryEntry> page = Database.searchEntries(query, cursor, pageSize);
+            if (page.isEmpty()) {
+                return pages;
+            }
+            pages.add(page);
+            cursor = Database.PageCursor.after(page.get(page.size() - 1));
+        }
+    }
+
+    private static List<Database.DiaryEntry> flatten(List<List<Database.DiaryEntry>> pages) {
+        List<Database.DiaryEntry> all = new ArrayList<>();
+        pages.forEach(all::addAll);
+        return all;
+    }
+
+    private static List<Integer> sizes(List<List<Database.DiaryEntry>> pages) {
+        List<Integer> sizes = new ArrayList<>();
+        pages.forEach(page -> sizes.add(page.size()));
+        return sizes;
+    }
+
+    private static List<String> titles(List<Database.DiaryEntry> entries) {
+        List<String> titles = new ArrayList<>();
+        entries.forEach(entry -> titles.add(entry.getTitle()));
+        return titles;
+    }
+}
@@ -0,0 +1,86 @@
+package com.loginapp;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * The scratch database surefire points diary.db at. Each test class runs in
+ * its own JVM, so it starts from an empty file.
+ */
+final class TestDatabase {
+    private TestDatabase() {
+    }
+
+    /**
+     * @return The database file
+     */
+    static Path file() {
+        return Paths.get(System.getProperty("diary.db", "users.db"));
+    }
+
+    /**
+     * Deletes the database file and whatever SQLite keeps next to it.
+     */
+    static void delete() throws IOException {
+        for (String suffix : new String[] { "", "-wal", "-shm" }) {
+            Files.deleteIfExists(Paths.get(file() + suffix));
+        }
+    }
+
+    /**
+     * Starts from an empty database at the current schema version.
+     */
+    static void create() throws IOException {
+        delete();
+        Database.init();
+    }
+
+    /**
+     * Starts from a database as the first release left it, before schema
+     * versions: no settings table, plaintext passwords and TEXT timestamps,
+     * created_at in local time and updated_at in UTC.
+     * @return A plain JDBC connection to it, without anything the app registers
+     */
+    static Connection createLegacy() throws IOException, SQLException {
+        delete();
+        Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file());
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE users (" +
+                         "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                         "username TEXT UNIQUE NOT NULL," +
+                         "password TEXT NOT NULL)");
+            stmt.execute("CREATE TABLE diary_entries (" +
+                         "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                         "user_id INTEGER NOT NULL," +
+                         "title TEXT NOT NULL," +
+                         "content TEXT NOT NULL," +
+                         "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                         "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                         "FOREIGN KEY (user_id) REFERENCES users(id))");
+            stmt.execute("CREATE TRIGGER update_diary_timestamp " +
+                         "AFTER UPDATE ON diary_entries " +
+                         "BEGIN " +
+                         "  UPDATE diary_entries SET updated_at = CURRENT_TIMESTAMP WHERE id = NEW.id; " +
+                         "END;");
+        }
+        return conn;
+    }
+
+    /**
+     * Signs up and logs in a new user, so entries written afterwards are theirs.
+     * @return The user's id
+     */
+    static int logIn(String username) {
+        UserDAO.signup(username, "secret");
+        UserDAO.login(username, "secret");
+        EntryCache.clear();
+        DayCountCache.clear();
+        return Database.getCurrentUserId();
+    }
+}
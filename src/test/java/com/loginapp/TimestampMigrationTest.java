@@ -0,0 +1,130 @@
+package com.loginapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * TEXT timestamps are converted to epoch millis chunk by chunk, a run that
+ * fails part way resumes after the last committed chunk, and the entry list
+ * keeps its order while converted and unconverted rows are mixed.
+ */
+class TimestampMigrationTest {
+    private static final DateTimeFormatter LEGACY = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final LocalDateTime START = LocalDateTime.of(2023, 1, 1, 0, 0);
+    private static final int ENTRIES = 1200;
+
+    @BeforeAll
+    static void createLegacyDiary() throws IOException, SQLException {
+        try (Connection conn = TestDatabase.createLegacy()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement();
+                 PreparedStatement insert = conn.prepareStatement(
+                     "INSERT INTO diary_entries (user_id, title, content, created_at, updated_at) " +
+                     "VALUES (1, ?, 'text', ?, ?)")) {
+                stmt.execute("INSERT INTO users (id, username, password) VALUES (1, 'legacy', 'secret')");
+                // One entry an hour; created_at was written in local time, updated_at in UTC
+                for (int i = 0; i < ENTRIES; i++) {
+                    insert.setString(1, "Entry " + i);
+                    insert.setString(2, START.plusHours(i).format(LEGACY));
+                    insert.setString(3, START.plusHours(i).plusMinutes(30).format(LEGACY));
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            conn.commit();
+        }
+
+        Database.init();
+        TimestampMigration.loadStatus();
+        UserSession.start(1, "legacy");
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        ConnectionManager.shutdown();
+    }
+
+    @Test
+    void resumesAfterAFailedChunkAndKeepsTheOrder() throws SQLException {
+        Database.addDiaryEntry("Added", "text", START.plusHours(700).plusMinutes(10));
+        // The second chunk fails, after the first one was committed
+        execute("CREATE TRIGGER refuse_update BEFORE UPDATE OF created_at ON diary_entries " +
+                "WHEN OLD.id = 700 BEGIN SELECT RAISE(ABORT, 'refused'); END");
+        TimestampMigration.migrateTimestamps();
+        execute("DROP TRIGGER refuse_update");
+
+        assertFalse(TimestampMigration.isComplete());
+        assertEquals("500", Database.getSetting("timestamp_migration.last_id"));
+        assertEquals(500, count("typeof(created_at) = 'integer' AND id <= 500"));
+        assertEquals(ENTRIES - 500, count("typeof(created_at) = 'text'"));
+        assertListOrder();
+
+        TimestampMigration.migrateTimestamps();
+
+        assertTrue(TimestampMigration.isComplete());
+        assertEquals(0, count("typeof(created_at) = 'text' OR typeof(updated_at) = 'text'"));
+        assertListOrder();
+
+        // created_at was local time, updated_at UTC
+        try (Connection conn = Database.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                 "SELECT created_at, updated_at FROM diary_entries WHERE title = 'Entry 42'")) {
+            LocalDateTime created = START.plusHours(42);
+            assertEquals(created.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), rs.getLong(1));
+            assertEquals(created.plusMinutes(30).toInstant(ZoneOffset.UTC).toEpochMilli(), rs.getLong(2));
+        }
+    }
+
+    // Every entry in order, the one the app added among the legacy ones
+    private static void assertListOrder() {
+        List<String> expected = new ArrayList<>();
+        for (int i = ENTRIES - 1; i >= 0; i--) {
+            expected.add("Entry " + i);
+            if (i == 700) {
+                expected.add(expected.size() - 1, "Added");
+            }
+        }
+
+        EntryCache.clear();
+        List<String> titles = new ArrayList<>();
+        List<Database.DiaryEntry> page = Database.getDiaryEntriesAfter(null, 250);
+        while (!page.isEmpty()) {
+            page.forEach(entry -> titles.add(entry.getTitle()));
+            page = Database.getDiaryEntriesAfter(Database.PageCursor.after(page.get(page.size() - 1)), 250);
+        }
+        assertEquals(expected, titles);
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection conn = Database.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    private static int count(String where) throws SQLException {
+        try (Connection conn = Database.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM diary_entries WHERE " + where)) {
+            return rs.getInt(1);
+        }
+    }
+}